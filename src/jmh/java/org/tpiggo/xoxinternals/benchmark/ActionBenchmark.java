@@ -0,0 +1,79 @@
+package org.tpiggo.xoxinternals.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tpiggo.xoxinternals.model.ModelAccessException;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+import org.tpiggo.xoxinternals.service.LogicException;
+import org.tpiggo.xoxinternals.service.XoxActionGenerator;
+import org.tpiggo.xoxinternals.service.XoxActionInterpreter;
+import org.tpiggo.xoxinternals.service.XoxClaimFieldAction;
+import org.tpiggo.xoxinternals.service.XoxEndingAnalyzer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the action layer: building the action bundle of a player and validating and applying actions.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionBenchmark {
+
+    @Param({"3", "15"})
+    int size;
+
+    private final Player first = new Player("X", "#FF0000");
+    private final Player second = new Player("O", "#00FF00");
+    private final XoxActionGenerator generator = new XoxActionGenerator();
+    private final XoxActionInterpreter interpreter = new XoxActionInterpreter(new XoxEndingAnalyzer());
+
+    // Game after one move per player, the first player is to move.
+    private XoxGame openGame;
+
+    // Actions claiming the first row, alternating between the players, so the game is not won meanwhile.
+    private XoxClaimFieldAction[] gameActions;
+
+    @Setup
+    public void setup() throws LogicException, ModelAccessException {
+        openGame = new XoxGame(first, second, size, size, size);
+        interpreter.interpretAndApplyAction(new XoxClaimFieldAction(0, 0, first), openGame);
+        interpreter.interpretAndApplyAction(new XoxClaimFieldAction(1, 0, second), openGame);
+
+        gameActions = new XoxClaimFieldAction[size];
+        for (int x = 0; x < size; x++)
+            gameActions[x] = new XoxClaimFieldAction(x, 0, x % 2 == 0 ? first : second);
+    }
+
+    @Benchmark
+    public Map<String, XoxClaimFieldAction> generateActions() throws LogicException {
+        return generator.generateActions(openGame, first);
+    }
+
+    /**
+     * Validates and applies a sequence of actions on a fresh game.
+     */
+    @Benchmark
+    public XoxGame interpretAndApplyAction() throws LogicException, ModelAccessException {
+        XoxGame game = new XoxGame(first, second, size, size, size);
+        for (XoxClaimFieldAction action : gameActions)
+            interpreter.interpretAndApplyAction(action, game);
+        return game;
+    }
+}
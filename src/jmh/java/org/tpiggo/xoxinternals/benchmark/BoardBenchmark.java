@@ -0,0 +1,77 @@
+package org.tpiggo.xoxinternals.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tpiggo.xoxinternals.model.Board;
+import org.tpiggo.xoxinternals.model.ModelAccessException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the board model: claiming cells, win lookup and cell matrix export. Measured on the classic
+ * board and on a Gomoku-sized board.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    // Step between two claimed cells. Coprime to all benchmarked cell counts, so every cell is visited once.
+    private static final int STRIDE = 7;
+
+    @Param({"3", "15"})
+    int size;
+
+    // Board with every second cell claimed, alternating players.
+    private Board board;
+
+    // Cell claim order of a full game. Spread over the board, so lines are scanned in all directions.
+    private int[] order;
+
+    @Setup
+    public void setup() throws ModelAccessException {
+        int cells = size * size;
+        order = new int[cells];
+        for (int i = 0; i < cells; i++)
+            order[i] = i * STRIDE % cells;
+
+        board = new Board(size, size, Math.min(size, 5));
+        for (int i = 0; i < cells / 2; i++)
+            board.occupy(order[i] % size, order[i] / size, i % 2 == 0);
+    }
+
+    /**
+     * Claims all cells of a fresh board, one by one. Includes the line detection and snapshot update of every claim.
+     */
+    @Benchmark
+    public Board occupyAll() throws ModelAccessException {
+        Board fresh = new Board(size, size, Math.min(size, 5));
+        for (int i = 0; i < order.length; i++)
+            fresh.occupy(order[i] % size, order[i] / size, i % 2 == 0);
+        return fresh;
+    }
+
+    @Benchmark
+    public int getThreeInALineCharIfExists() {
+        return board.getThreeInALineCharIfExists();
+    }
+
+    @Benchmark
+    public int[][] getCells() {
+        return board.getCells();
+    }
+}
@@ -0,0 +1,97 @@
+package org.tpiggo.xoxinternals.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+import org.tpiggo.xoxinternals.service.XoxManager;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of XoxManagerImpl.performAction, with one, four and as many threads as there are cores. Every thread
+ * plays its own game and always selects the first offered action. Once a game is over it is replaced by a new one, so
+ * the measurement includes game creation and removal at the rate a real game sees them.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagerBenchmark {
+
+    private static final String[] NAMES = {"X", "O"};
+
+    /**
+     * The game played by a single benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadGame {
+
+        private final XoxManager manager = XoxManagerImpl.getInstance();
+        private long gameId;
+        private int mover;
+
+        @Setup
+        public void setup() {
+            newGame();
+        }
+
+        @TearDown
+        public void tearDown() {
+            manager.removeGame(gameId);
+        }
+
+        int move() {
+            int status = manager.performAction(gameId, NAMES[mover], 0);
+            if (status == MoveStatus.APPLIED) {
+                mover = 1 - mover;
+            } else {
+                manager.removeGame(gameId);
+                newGame();
+            }
+            return status;
+        }
+
+        private void newGame() {
+            LinkedList<Player> players = new LinkedList<>();
+            players.add(new Player(NAMES[0], "#FF0000"));
+            players.add(new Player(NAMES[1], "#00FF00"));
+            gameId = manager.addGame(new XoxInitSettings(players, NAMES[0]));
+            mover = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int performActionSingleThread(ThreadGame game) {
+        return game.move();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int performActionFourThreads(ThreadGame game) {
+        return game.move();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int performActionAllCores(ThreadGame game) {
+        return game.move();
+    }
+}
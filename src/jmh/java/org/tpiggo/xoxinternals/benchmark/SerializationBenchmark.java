@@ -0,0 +1,95 @@
+package org.tpiggo.xoxinternals.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+import org.tpiggo.xoxinternals.service.Ranking;
+import org.tpiggo.xoxinternals.service.XoxClaimFieldAction;
+import org.tpiggo.xoxinternals.service.XoxManager;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the REST responses of the hot endpoints: board, ranking and offered actions. Uses an object mapper
+ * configured like the one of the web layer.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final XoxManager manager = XoxManagerImpl.getInstance();
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private long openGameId;
+    private long finishedGameId;
+    private BoardReadOnly board;
+    private Ranking ranking;
+    private XoxClaimFieldAction[] actions;
+
+    @Setup
+    public void setup() {
+        // Open game: two moves played, the first player is to move and has seven actions.
+        openGameId = addGame();
+        manager.performAction(openGameId, "X", 4);
+        manager.performAction(openGameId, "O", 0);
+        board = manager.getBoard(openGameId);
+        actions = manager.getActions(openGameId, "X");
+
+        // Finished game: the first player completes the first column.
+        finishedGameId = addGame();
+        int[] moves = {0, 0, 1, 0, 2};
+        for (int i = 0; i < moves.length; i++)
+            manager.performAction(finishedGameId, i % 2 == 0 ? "X" : "O", moves[i]);
+        ranking = manager.getRanking(finishedGameId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.removeGame(openGameId);
+        manager.removeGame(finishedGameId);
+    }
+
+    @Benchmark
+    public byte[] board() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(board);
+    }
+
+    @Benchmark
+    public byte[] ranking() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(ranking);
+    }
+
+    @Benchmark
+    public byte[] actions() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(actions);
+    }
+
+    private long addGame() {
+        LinkedList<Player> players = new LinkedList<>();
+        players.add(new Player("X", "#FF0000"));
+        players.add(new Player("O", "#00FF00"));
+        return manager.addGame(new XoxInitSettings(players, "X"));
+    }
+}
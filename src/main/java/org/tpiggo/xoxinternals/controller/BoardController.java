@@ -1,10 +1,13 @@
 package org.tpiggo.xoxinternals.controller;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.GameHistory;
 import org.tpiggo.xoxinternals.service.XoxManager;
 
 @RestController
@@ -20,4 +23,12 @@ public class BoardController {
     public BoardReadOnly getBoard(@PathVariable("id") Long id) {
         return xoxService.getBoard(id);
     }
+
+    @GetMapping("/{id}/{ply}")
+    public BoardReadOnly getPosition(@PathVariable("id") Long id, @PathVariable("ply") int ply) {
+        GameHistory history = xoxService.getHistory(id);
+        if (history == null || ply < 0 || ply > history.getMoveCount())
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such game or position.");
+        return history.getPosition(ply);
+    }
 }
@@ -0,0 +1,54 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.tpiggo.xoxinternals.service.BoardFeed;
+
+import java.util.function.Consumer;
+
+@RestController
+@RequestMapping("board")
+@ConditionalOnProperty(name = "xox.push.enabled", havingValue = "true", matchIfMissing = true)
+public class BoardUpdateController {
+
+    private final BoardFeed feed;
+    private final long timeoutMillis;
+
+    public BoardUpdateController(BoardFeed aFeed, @Value("${xox.push.timeout-ms:1800000}") long aTimeoutMillis) {
+        feed = aFeed;
+        timeoutMillis = aTimeoutMillis;
+    }
+
+    /**
+     * Streams the board of a game as Server-Sent Events: the current state right away, then the latest state after
+     * every move. The stream completes once the game is removed, or right away if there is no such game.
+     */
+    @GetMapping(value = "/{id}/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable("id") final long gameId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        final SseBoardSubscriber subscriber = new SseBoardSubscriber(emitter);
+        final Runnable unsubscribe = new Runnable() {
+            @Override
+            public void run() {
+                feed.unsubscribe(gameId, subscriber);
+            }
+        };
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable) {
+                unsubscribe.run();
+            }
+        });
+        if (!feed.subscribe(gameId, subscriber))
+            emitter.complete();
+        return emitter;
+    }
+}
@@ -0,0 +1,52 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.tpiggo.xoxinternals.service.XoxMetrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Times the requests handled by the game controllers and reports them to the metrics, keyed by method and path
+ * pattern, so all games share one entry per endpoint. Requests of other controllers are not timed.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class EndpointLatencyInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = EndpointLatencyInterceptor.class.getName() + ".start";
+
+    private final XoxMetrics metrics;
+
+    public EndpointLatencyInterceptor(XoxMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isTimed(handler))
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception exception) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null)
+            return;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        metrics.recordRequest(request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern),
+                System.nanoTime() - (Long) start);
+    }
+
+    private static boolean isTimed(Object handler) {
+        if (!(handler instanceof HandlerMethod))
+            return false;
+        Class<?> controller = ((HandlerMethod) handler).getBeanType();
+        return controller == XoxController.class || controller == BoardController.class
+                || controller == PlayerController.class;
+    }
+}
@@ -0,0 +1,39 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.tpiggo.xoxinternals.service.Leaderboard;
+import org.tpiggo.xoxinternals.service.PlayerStanding;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("xox/leaderboard")
+@ConditionalOnProperty(name = "xox.leaderboard.enabled", havingValue = "true", matchIfMissing = true)
+public class LeaderboardController {
+
+    private final Leaderboard leaderboard;
+
+    public LeaderboardController(Leaderboard aLeaderboard) {
+        leaderboard = aLeaderboard;
+    }
+
+    @GetMapping("")
+    public List<PlayerStanding> getTop(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return leaderboard.getTop(limit);
+    }
+
+    @GetMapping("/{player}")
+    public PlayerStanding getStanding(@PathVariable("player") String player) {
+        PlayerStanding standing = leaderboard.getStanding(player);
+        if (standing == null)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such player on the leaderboard.");
+        return standing;
+    }
+}
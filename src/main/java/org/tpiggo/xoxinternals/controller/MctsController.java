@@ -0,0 +1,34 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.tpiggo.xoxinternals.service.MctsEngine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("xox/mcts")
+@ConditionalOnProperty(name = "xox.mcts.enabled", havingValue = "true")
+public class MctsController {
+
+    private final MctsEngine engine;
+
+    public MctsController(MctsEngine anEngine) {
+        engine = anEngine;
+    }
+
+    @GetMapping("")
+    public Map<String, Number> getSearchStats() {
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("searches", engine.getSearchCount());
+        stats.put("pendingSearches", engine.getPendingSearchCount());
+        stats.put("playouts", engine.getPlayoutCount());
+        stats.put("parallelism", engine.getParallelism());
+        stats.put("playoutsPerSecond", engine.getPlayoutsPerSecond());
+        stats.put("playoutsPerSecondPerCore", engine.getPlayoutsPerSecond() / engine.getParallelism());
+        return stats;
+    }
+}
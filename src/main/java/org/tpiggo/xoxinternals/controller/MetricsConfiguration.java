@@ -0,0 +1,28 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.tpiggo.xoxinternals.service.XoxMetrics;
+
+/**
+ * Registers the endpoint latency interceptor while metrics are enabled.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Configuration
+@ConditionalOnProperty(name = "xox.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+    private final XoxMetrics metrics;
+
+    public MetricsConfiguration(XoxMetrics aMetrics) {
+        metrics = aMetrics;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new EndpointLatencyInterceptor(metrics));
+    }
+}
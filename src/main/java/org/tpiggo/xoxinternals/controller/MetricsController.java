@@ -0,0 +1,24 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.tpiggo.xoxinternals.service.XoxMetrics;
+
+@RestController
+@RequestMapping("xox/metrics")
+@ConditionalOnProperty(name = "xox.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsController {
+
+    private final XoxMetrics metrics;
+
+    public MetricsController(XoxMetrics aMetrics) {
+        metrics = aMetrics;
+    }
+
+    @GetMapping(value = "", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String scrape() {
+        return metrics.scrape();
+    }
+}
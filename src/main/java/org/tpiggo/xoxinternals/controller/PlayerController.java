@@ -2,6 +2,7 @@ package org.tpiggo.xoxinternals.controller;
 
 import org.springframework.web.bind.annotation.*;
 import org.tpiggo.xoxinternals.controller.dto.ActionRequest;
+import org.tpiggo.xoxinternals.controller.dto.MoveRequest;
 import org.tpiggo.xoxinternals.model.Player;
 import org.tpiggo.xoxinternals.service.XoxClaimFieldAction;
 import org.tpiggo.xoxinternals.service.XoxManager;
@@ -30,14 +31,28 @@ public class PlayerController {
     }
 
     @PostMapping("/{id}/{name}/{action}")
-    public void movePlayer(@PathVariable("id") Long id, @PathVariable("name") String name,
+    public int movePlayer(@PathVariable("id") Long id, @PathVariable("name") String name,
                            @PathVariable("action") int action) {
-        xoxService.performAction(id, name, action);
+        return xoxService.performAction(id, name, action);
     }
 
     @PostMapping("/{id}/{name}/action")
-    public void movePlayerBetter(@PathVariable("id") Long id, @PathVariable("name") String name,
+    public int movePlayerBetter(@PathVariable("id") Long id, @PathVariable("name") String name,
                            @RequestBody ActionRequest actionRequest) {
-        xoxService.performAction(id, name, actionRequest.getActionId());
+        return xoxService.performAction(id, name, actionRequest.getActionId());
+    }
+
+    @PostMapping("/actions")
+    public int[] movePlayers(@RequestBody List<MoveRequest> moveRequests) {
+        long[] gameIds = new long[moveRequests.size()];
+        String[] players = new String[moveRequests.size()];
+        int[] actionIds = new int[moveRequests.size()];
+        for (int i = 0; i < gameIds.length; i++) {
+            MoveRequest moveRequest = moveRequests.get(i);
+            gameIds[i] = moveRequest.getGameId();
+            players[i] = moveRequest.getPlayer();
+            actionIds[i] = moveRequest.getActionId();
+        }
+        return xoxService.performActions(gameIds, players, actionIds);
     }
 }
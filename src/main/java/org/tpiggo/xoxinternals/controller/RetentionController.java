@@ -0,0 +1,32 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.tpiggo.xoxinternals.service.GameEvictor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("xox/retention")
+@ConditionalOnProperty(name = "xox.retention.enabled", havingValue = "true")
+public class RetentionController {
+
+    private final GameEvictor evictor;
+
+    public RetentionController(GameEvictor anEvictor) {
+        evictor = anEvictor;
+    }
+
+    @GetMapping("")
+    public Map<String, Long> getRetentionStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("residentGames", (long) evictor.getResidentGameCount());
+        stats.put("expiredFinished", evictor.getExpiredFinishedCount());
+        stats.put("expiredIdle", evictor.getExpiredIdleCount());
+        stats.put("evictedOverCapacity", evictor.getEvictedOverCapacityCount());
+        return stats;
+    }
+}
@@ -0,0 +1,39 @@
+package org.tpiggo.xoxinternals.controller;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.tpiggo.xoxinternals.service.BoardSubscriber;
+import org.tpiggo.xoxinternals.service.BoardUpdate;
+
+import java.io.IOException;
+
+/**
+ * Forwards board updates to a Server-Sent Events connection. Each update is sent as a "board" event, with the board
+ * version as event id. The data is the JSON encoded by the feed, so it is not serialized again per connection.
+ *
+ * @author Maximilian Schiedermeier
+ */
+class SseBoardSubscriber implements BoardSubscriber {
+
+    private final SseEmitter emitter;
+
+    SseBoardSubscriber(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public boolean push(BoardUpdate update, String json) {
+        try {
+            emitter.send(SseEmitter.event().id(String.valueOf(update.getVersion())).name("board").data(json));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+
+            // The client disconnected or the connection completed meanwhile.
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        emitter.complete();
+    }
+}
@@ -1,10 +1,16 @@
 package org.tpiggo.xoxinternals.controller;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.tpiggo.xoxinternals.model.GameHistory;
 import org.tpiggo.xoxinternals.model.XoxInitSettings;
 import org.tpiggo.xoxinternals.service.Ranking;
 import org.tpiggo.xoxinternals.service.XoxManager;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,8 +30,11 @@ public class XoxController {
     }
 
     @PostMapping("/")
-    public void addGame(@RequestBody XoxInitSettings gameSettings) {
-        xoxService.addGame(gameSettings);
+    public long addGame(@RequestBody XoxInitSettings gameSettings) {
+        String error = gameSettings.findError();
+        if (error != null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+        return xoxService.addGame(gameSettings);
     }
 
     @GetMapping("/{id}")
@@ -33,6 +42,22 @@ public class XoxController {
         return xoxService.getRanking(id);
     }
 
+    @GetMapping("/{id}/hints")
+    public int[] getHints(@PathVariable("id") Long id) {
+        return xoxService.getHints(id);
+    }
+
+    @GetMapping("/{id}/history")
+    public GameHistory getHistory(@PathVariable("id") Long id) {
+        return xoxService.getHistory(id);
+    }
+
+    @GetMapping(value = "/histories", produces = "application/octet-stream")
+    public void exportHistories(HttpServletResponse response) throws IOException {
+        response.setContentType("application/octet-stream");
+        xoxService.exportHistories(Channels.newChannel(response.getOutputStream()));
+    }
+
     @DeleteMapping("/{id}")
     public void deleteGame(@PathVariable("id") Long id) {
         xoxService.removeGame(id);
@@ -0,0 +1,44 @@
+package org.tpiggo.xoxinternals.controller.dto;
+
+/**
+ * A single move of a batch submission, addressing the game, the acting player and the selected action.
+ */
+public class MoveRequest {
+    private long gameId;
+    private String player;
+    private int actionId;
+
+    public MoveRequest() {
+        actionId = -1;
+    }
+
+    public MoveRequest(long aGameId, String aPlayer, int anActionId) {
+        gameId = aGameId;
+        player = aPlayer;
+        actionId = anActionId;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(long aGameId) {
+        gameId = aGameId;
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(String aPlayer) {
+        player = aPlayer;
+    }
+
+    public int getActionId() {
+        return actionId;
+    }
+
+    public void setActionId(int anActionId) {
+        actionId = anActionId;
+    }
+}
@@ -0,0 +1,325 @@
+package org.tpiggo.xoxinternals.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.tpiggo.xoxinternals.XoxApplication;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.service.LatencyHistogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load generator for the REST interface. Operations are issued at a fixed target rate, independent of
+ * how fast the server answers, and drawn from a configurable mix of:
+ * <ul>
+ * <li>create: POST /xox/ with a new two player game.</li>
+ * <li>move: GET /players/{id}/{name}/actions for the player on turn, then POST /players/{id}/{name}/action with a
+ * random offered action. Games without actions are over and removed with DELETE /xox/{id}.</li>
+ * <li>board: GET /board/{id} of a running game.</li>
+ * </ul>
+ * Latencies are measured per endpoint. The first request of an operation is timed from the moment it was scheduled to
+ * be sent, not from the moment it actually was, so a stalled server shows up in the percentiles instead of silently
+ * lowering the request rate (no coordinated omission). Follow-up requests of an operation are timed from their send.
+ * <p>
+ * Run with --key=value arguments: url (default: start XoxApplication in this JVM on a free port), rate (operations per
+ * second, 1000), duration (measured seconds, 30), warmup (unmeasured seconds ahead, 5), mix (create:move:board
+ * weights, 1:8:4), threads (concurrent connections, 64), seed (of the operation sequence, 361).
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class LoadGenerator {
+
+    // Operations of the mix.
+    private static final int CREATE = 0;
+    private static final int MOVE = 1;
+    private static final int BOARD = 2;
+
+    // Measured endpoints.
+    private static final int CREATE_GAME = 0;
+    private static final int GET_ACTIONS = 1;
+    private static final int PERFORM_ACTION = 2;
+    private static final int GET_BOARD = 3;
+    private static final int DELETE_GAME = 4;
+    private static final String[] ENDPOINTS = {"POST /xox/", "GET /players/{id}/{name}/actions",
+            "POST /players/{id}/{name}/action", "GET /board/{id}", "DELETE /xox/{id}"};
+
+    private static final String[] NAMES = {"X", "O"};
+
+    private final String baseUrl;
+    private final int[] mix;
+    private final int threads;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[ENDPOINTS.length];
+    private final LongAdder[] errors = new LongAdder[ENDPOINTS.length];
+
+    // Games no operation currently works on. A move takes a game out and puts it back once done, so the moves of a
+    // game never overlap.
+    private final ConcurrentLinkedQueue<OpenGame> idleGames = new ConcurrentLinkedQueue<>();
+
+    // Scheduled time from which on latencies are recorded. Earlier operations are warmup.
+    private volatile long measureFrom;
+
+    /**
+     * @param baseUrl as the server address, e.g. http://localhost:8080
+     * @param mix     as the relative weights of create, move and board operations.
+     * @param threads as the amount of requests in flight at most.
+     */
+    public LoadGenerator(String baseUrl, int[] mix, int threads) {
+        if (mix.length != 3 || Math.min(mix[CREATE], Math.min(mix[MOVE], mix[BOARD])) < 0
+                || mix[CREATE] + mix[MOVE] + mix[BOARD] <= 0)
+            throw new RuntimeException("Operation mix needs three non negative weights, not all zero.");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.mix = mix.clone();
+        this.threads = threads;
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Issues operations at the target rate until warmup and measurement are over, then waits for all outstanding
+     * requests.
+     *
+     * @param rate          as the target amount of operations per second.
+     * @param warmupSeconds as the time operations are issued before latencies are recorded.
+     * @param seconds       as the time latencies are recorded.
+     * @param seed          as the seed of the operation sequence.
+     */
+    public void run(double rate, long warmupSeconds, long seconds, long seed) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int created;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xox-load-" + created++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        Random random = new Random(seed);
+        int totalWeight = mix[CREATE] + mix[MOVE] + mix[BOARD];
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        try {
+            for (long scheduled = start; scheduled < end; scheduled += interval) {
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0)
+                    LockSupport.parkNanos(wait);
+
+                final int operation = pick(random.nextInt(totalWeight));
+                final long scheduledAt = scheduled;
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        perform(operation, scheduledAt);
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * @return the percentiles, means and error counts of all endpoints, one line each.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-34s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            LatencyHistogram histogram = latencies[i];
+            report.append(String.format("%-34s %9d %7d %9.3f %9.3f %9.3f %9.3f %9.3f%n", ENDPOINTS[i],
+                    histogram.getCount(), errors[i].sum(), histogram.getMean() / 1e6,
+                    histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMax() / 1e6));
+        }
+        return report.toString();
+    }
+
+    private int pick(int weight) {
+        if (weight < mix[CREATE])
+            return CREATE;
+        return weight < mix[CREATE] + mix[MOVE] ? MOVE : BOARD;
+    }
+
+    private void perform(int operation, long scheduledAt) {
+        if (operation == CREATE) {
+            createGame(scheduledAt);
+            return;
+        }
+
+        // Moves and board polls need a running game. If there is none, the operation creates one instead.
+        OpenGame game = (operation == MOVE ? idleGames.poll() : idleGames.peek());
+        if (game == null) {
+            createGame(scheduledAt);
+        } else if (operation == BOARD) {
+            send("GET", "/board/" + game.id, null, GET_BOARD, scheduledAt);
+        } else {
+            move(game, scheduledAt);
+        }
+    }
+
+    private void createGame(long scheduledAt) {
+        String settings = "{\"players\":[{\"name\":\"" + NAMES[0] + "\",\"preferredColour\":\"#FF0000\"},"
+                + "{\"name\":\"" + NAMES[1] + "\",\"preferredColour\":\"#0000FF\"}],\"creator\":\"" + NAMES[0] + "\"}";
+        String id = send("POST", "/xox/", settings, CREATE_GAME, scheduledAt);
+        if (id != null)
+            idleGames.add(new OpenGame(Long.parseLong(id.trim())));
+    }
+
+    private void move(OpenGame game, long scheduledAt) {
+        String name = NAMES[game.mover];
+        String actions = send("GET", "/players/" + game.id + "/" + name + "/actions", null, GET_ACTIONS, scheduledAt);
+        int actionCount = -1;
+        try {
+            if (actions != null)
+                actionCount = mapper.readTree(actions).size();
+        } catch (IOException e) {
+            errors[GET_ACTIONS].increment();
+        }
+        if (actionCount < 0) {
+            idleGames.add(game);
+            return;
+        }
+
+        // No actions for the player on turn: the game is over.
+        if (actionCount == 0) {
+            send("DELETE", "/xox/" + game.id, null, DELETE_GAME, System.nanoTime());
+            return;
+        }
+
+        String body = "{\"actionId\":" + ThreadLocalRandom.current().nextInt(actionCount) + "}";
+        String status = send("POST", "/players/" + game.id + "/" + name + "/action", body, PERFORM_ACTION,
+                System.nanoTime());
+        if (status != null && Integer.parseInt(status.trim()) == MoveStatus.APPLIED)
+            game.mover = 1 - game.mover;
+        idleGames.add(game);
+    }
+
+    /**
+     * Sends a request and records its latency, measured from the provided start time to the end of the response.
+     *
+     * @return the response body, or null if the request failed.
+     */
+    private String send(String method, String path, String body, int endpoint, long startedAt) {
+        boolean failed = false;
+        String response = null;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int code = connection.getResponseCode();
+            failed = code >= 300;
+
+            // Responses are read to the end, also on errors, so the connection can be reused.
+            InputStream in = failed ? connection.getErrorStream() : connection.getInputStream();
+            response = (in == null ? "" : readFully(in));
+        } catch (IOException e) {
+            failed = true;
+        }
+
+        if (startedAt - measureFrom >= 0) {
+            latencies[endpoint].record(System.nanoTime() - startedAt);
+            if (failed)
+                errors[endpoint].increment();
+        }
+        return failed ? null : response;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) > 0)
+                bytes.write(buffer, 0, read);
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A game created by the load generator, with the index of the player on turn.
+     */
+    private static final class OpenGame {
+        final long id;
+        int mover;
+
+        OpenGame(long id) {
+            this.id = id;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0)
+                throw new RuntimeException("Arguments must be passed as --key=value, not: " + arg);
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        double rate = Double.parseDouble(option(options, "rate", "1000"));
+        long warmup = Long.parseLong(option(options, "warmup", "5"));
+        long duration = Long.parseLong(option(options, "duration", "30"));
+        int threads = Integer.parseInt(option(options, "threads", "64"));
+        long seed = Long.parseLong(option(options, "seed", "361"));
+        String[] weights = option(options, "mix", "1:8:4").split(":");
+        int[] mix = new int[weights.length];
+        for (int i = 0; i < weights.length; i++)
+            mix[i] = Integer.parseInt(weights[i]);
+
+        // Keep-alive connections are pooled per destination, allow one per worker.
+        System.setProperty("http.maxConnections", Integer.toString(threads));
+
+        ConfigurableApplicationContext application = null;
+        String url = options.get("url");
+        if (url == null) {
+            application = SpringApplication.run(XoxApplication.class, "--server.port=0");
+            url = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            LoadGenerator generator = new LoadGenerator(url, mix, threads);
+            generator.run(rate, warmup, duration, seed);
+            System.out.printf("%.0f operations/s for %d s against %s, mix %s%n", rate, duration, url,
+                    option(options, "mix", "1:8:4"));
+            System.out.print(generator.report());
+        } finally {
+            if (application != null)
+                application.close();
+        }
+    }
+
+    private static String option(Map<String, String> options, String key, String defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : value;
+    }
+}
@@ -1,46 +1,120 @@
 package org.tpiggo.xoxinternals.model;
 
 /**
- * Xox specific implementation of the board interface. Encodes 3x3 matrix with individually maintained state model per
- * cell.
+ * Xox specific implementation of the board interface. Encodes an m x n matrix as two bitsets, one per player. Bit
+ * i of a bitset represents the cell at x = i % width, y = i / width. A board is won by the first player to claim
+ * lineLength cells in a row, column or diagonal. Since a line can only be completed by the cell just claimed, every
+ * occupy only scans the four lines through that cell, and the result is kept so full, empty and win queries are O(1).
  *
  * @author Maximilian Schiedermeier
  */
 public class Board implements BoardReadOnly {
 
-    // States of cells are encoded by Characters:
-    // ' ': empty. 'x': occupied by x, 'o': occupied by o, 'X' winning cell of x, 'O' winning cell of o.
-    private final int[][] cells;
+    /**
+     * Largest supported edge length (Gomoku-sized boards).
+     */
+    public static final int MAX_SIZE = 19;
+
+    // Directions of the four lines through a cell: horizontal, vertical, diagonal, anti-diagonal.
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private final int width;
+    private final int height;
+    private final int lineLength;
+
+    // Cells claimed by the first (1) and second (2) player.
+    private final long[] firstPlayerCells;
+    private final long[] secondPlayerCells;
+
+    // Amount of claimed cells.
+    private int occupiedCells;
+
+    // Owner of the first completed line: 0 if none, 1 for the first player, 2 for the second player.
+    private int lineOwner;
+
+    // Immutable view of the current state, replaced on every occupy.
+    private volatile BoardSnapshot snapshot;
 
     /**
-     * Default constructor for Xox boards. Creates an empty 3x3 cell matrix.
+     * Default constructor for Xox boards. Creates an empty 3x3 board, won with three in a line.
      */
     public Board() {
-        cells = new int[3][3];
-        initCells();
+        this(3, 3, 3);
+    }
+
+    /**
+     * Constructor for generalized m,n,k boards.
+     *
+     * @param width      as the amount of columns. Range: [1-19]
+     * @param height     as the amount of rows. Range: [1-19]
+     * @param lineLength as the amount of cells in a line required to win. Must not exceed width and height both.
+     */
+    public Board(int width, int height, int lineLength) {
+        String error = checkDimensions(width, height, lineLength);
+        if (error != null)
+            throw new RuntimeException("Unable to create board. " + error);
+
+        this.width = width;
+        this.height = height;
+        this.lineLength = lineLength;
+        firstPlayerCells = new long[(width * height + 63) >>> 6];
+        secondPlayerCells = new long[firstPlayerCells.length];
+        snapshot = BoardSnapshot.empty(width, height, lineLength);
+    }
+
+    /**
+     * Checks whether a board can be created with the provided dimensions.
+     *
+     * @return a description of the first invalid dimension, or null if all are valid.
+     */
+    public static String checkDimensions(int width, int height, int lineLength) {
+        if (width < 1 || width > MAX_SIZE || height < 1 || height > MAX_SIZE)
+            return "Width and height must be in range [1-" + MAX_SIZE + "].";
+        if (lineLength < 1 || lineLength > Math.max(width, height))
+            return "Line length must be in range [1-" + Math.max(width, height) + "].";
+        return null;
+    }
+
+    /**
+     * Getter for the latest published snapshot of this board. Snapshots are immutable and never torn, so they can be
+     * passed to readers and serializers without copying.
+     *
+     * @return the snapshot reflecting all cells claimed so far.
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getLineLength() {
+        return lineLength;
     }
 
     /**
-     * Iterates of a board and returns true if all cells are populated.
+     * Tells whether all cells are populated.
      *
      * @return boolean telling whether the xox is full.
      */
     @Override
     public boolean isFull() {
-
-        for (int x = 0; x < cells.length; x++) {
-            for (int y = 0; y < cells[x].length; y++) {
-                if (cells[x][y] == 0)
-                    return false;
-            }
-        }
-        return true;
+        return occupiedCells == width * height;
     }
 
     /**
-     * Insepcts the cells and returns true if three equal symbols lie on row, column or main diagonal.
+     * Tells whether one player has claimed lineLength cells on a row, column or diagonal.
      *
-     * @return boolean telling whether on the current board there are three cells in a line, claimed by the same player.
+     * @return boolean telling whether on the current board there are enough cells in a line, claimed by the same
+     * player.
      */
     public boolean isThreeInALine() {
 
@@ -48,102 +122,126 @@ public class Board implements BoardReadOnly {
     }
 
     /**
-     * If there a three in a line, this method returns the character of those cells. If there are not, it returns the
-     * space character.
+     * If there is a completed line, this method returns the value of its cells (1 for the first player, 2 for the
+     * second player). If there is not, it returns 0.
      *
-     * @return a character indicating the occupier of the line or a whitespace.
+     * @return an int indicating the occupier of the line or 0.
      */
     public int getThreeInALineCharIfExists() {
-        // check for three in a row
-        for (int y = 0; y < cells[0].length; y++) {
-            if (cells[0][y] == cells[1][y] && cells[1][y] == cells[2][y])
-                return cells[1][y];
-        }
-
-        // check for three in a column
-        for (int x = 0; x < cells.length; x++) {
-            if (cells[x][0] == cells[x][1] && cells[x][1] == cells[x][2])
-                return cells[x][1];
-        }
-
-        // check diagonals
-        if (cells[0][0] == cells[1][1] && cells[1][1] == cells[2][2])
-            return cells[1][1];
-        if (cells[0][2] == cells[1][1] && cells[1][1] == cells[2][0])
-            return cells[1][1];
-
-        return 0;
+        return lineOwner;
     }
 
     public boolean isFree(int xPos, int yPos) {
 
-        return cells[yPos][xPos] == 0;
+        return isOnBoard(xPos, yPos) && getCell(xPos, yPos) == 0;
     }
 
     @Override
     public int[][] getCells() {
-        //Create target copy of same size
-        int[][] copiedCells = new int[cells.length][cells[0].length];
-
-        // Fill target copy with identical values
-        for (int x = 0; x < copiedCells.length; x++) {
-            for (int y = 0; y < copiedCells[x].length; y++) {
-                copiedCells[x][y] = cells[x][y];
+        // Expand the bitsets into a fresh matrix, indexed [y][x].
+        int[][] cells = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                cells[y][x] = getCell(x, y);
             }
         }
+        return cells;
+    }
+
+    public void occupy(int xPos, int yPos, boolean firstPlayer) throws ModelAccessException {
+        if (!isOnBoard(xPos, yPos))
+            throw new ModelAccessException("Requested cell can not by occupied. Is out of bounds.");
+        if (!isFree(xPos, yPos))
+            throw new ModelAccessException("Requested cell can not by occupied. Is not free.");
+
+        long[] playerCells = (firstPlayer ? firstPlayerCells : secondPlayerCells);
+        int index = yPos * width + xPos;
+        playerCells[index >>> 6] |= 1L << index;
+        occupiedCells++;
 
-        //return deep copy of cells.
-        return copiedCells;
+        // Only the lines through the new cell can have been completed.
+        if (lineOwner == 0 && completesLine(xPos, yPos, playerCells))
+            lineOwner = (firstPlayer ? 1 : 2);
+        snapshot = snapshot.withCell(xPos, yPos, firstPlayer ? 1 : 2, lineOwner);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return occupiedCells == 0;
     }
 
     /**
-     * Iterates over the board and initializes all cells with the whitespace character.
+     * Measures the longest line of a player that would run through a cell, if the player claimed it. The cell itself
+     * is not inspected.
+     *
+     * @return the amount of cells of that line, including the provided cell. At most lineLength.
      */
-    private void initCells() {
-        for (int x = 0; x < cells.length; x++) {
-            for (int y = 0; y < cells[x].length; y++) {
-                cells[x][y] = 0;
-            }
+    int longestLineThrough(int xPos, int yPos, boolean firstPlayer) {
+        long[] playerCells = (firstPlayer ? firstPlayerCells : secondPlayerCells);
+        int longest = 0;
+        for (int[] direction : DIRECTIONS) {
+            int lineCells = 1
+                    + countInDirection(xPos, yPos, direction[0], direction[1], playerCells)
+                    + countInDirection(xPos, yPos, -direction[0], -direction[1], playerCells);
+            longest = Math.max(longest, Math.min(lineCells, lineLength));
         }
+        return longest;
     }
 
-    public void occupy(int xPos, int yPos, boolean firstPlayer) throws ModelAccessException {
-        if (!isFree(xPos, yPos))
-            throw new ModelAccessException("Requested cell can not by occupied. Is not free.");
-        cells[yPos][xPos] = (firstPlayer ? 1 : 2);
+    /**
+     * Tests whether the provided cell lies on at least one line of lineLength cells of the provided player.
+     */
+    private boolean completesLine(int xPos, int yPos, long[] playerCells) {
+        for (int[] direction : DIRECTIONS) {
+            int lineCells = 1
+                    + countInDirection(xPos, yPos, direction[0], direction[1], playerCells)
+                    + countInDirection(xPos, yPos, -direction[0], -direction[1], playerCells);
+            if (lineCells >= lineLength)
+                return true;
+        }
+        return false;
     }
 
-    @Override
-    public boolean isEmpty() {
-        // iterate over all cells. return false if at least one cell occupied, true otherwise.
-        for (int x = 0; x < cells.length; x++) {
-            for (int y = 0; y < cells[x].length; y++) {
-                if (!isFree(x, y))
-                    return false;
-            }
+    /**
+     * Counts the consecutive cells of a player, starting next to the provided cell and moving in the provided
+     * direction. Stops after lineLength - 1 cells, since longer runs do not matter.
+     */
+    private int countInDirection(int xPos, int yPos, int dx, int dy, long[] playerCells) {
+        int count = 0;
+        int x = xPos + dx;
+        int y = yPos + dy;
+        while (count < lineLength - 1 && isOnBoard(x, y) && isSet(playerCells, y * width + x)) {
+            count++;
+            x += dx;
+            y += dy;
         }
+        return count;
+    }
 
-        // All cells free, board is empty.
-        return true;
+    /**
+     * Resolves the value of a single cell.
+     *
+     * @return 0 if the cell is free, 1 if claimed by the first player, 2 if claimed by the second player.
+     */
+    private int getCell(int xPos, int yPos) {
+        int index = yPos * width + xPos;
+        if (isSet(firstPlayerCells, index))
+            return 1;
+        if (isSet(secondPlayerCells, index))
+            return 2;
+        return 0;
+    }
+
+    private boolean isOnBoard(int xPos, int yPos) {
+        return xPos >= 0 && xPos < width && yPos >= 0 && yPos < height;
+    }
+
+    private static boolean isSet(long[] cells, int index) {
+        return (cells[index >>> 6] & (1L << index)) != 0;
     }
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder("");
-
-        sb.append("\n -------------\n");
-        for (int x = 0; x < cells.length; x++) {
-            sb.append(" | ");
-            for (int y = 0; y < cells[x].length; y++) {
-                if (cells[x][y] == ' ')
-                    sb.append('.');
-                else
-                    sb.append(cells[x][y]).charAt(0);
-                sb.append(" | ");
-            }
-            sb.append("\n");
-            sb.append(" -------------\n");
-        }
-        return sb.toString();
+        return snapshot.toString();
     }
 }
@@ -15,4 +15,19 @@ public interface BoardReadOnly {
 
     int[][] getCells();
 
+    /**
+     * @return the amount of columns of this board.
+     */
+    int getWidth();
+
+    /**
+     * @return the amount of rows of this board.
+     */
+    int getHeight();
+
+    /**
+     * @return the amount of cells in a line a player must claim to win.
+     */
+    int getLineLength();
+
 }
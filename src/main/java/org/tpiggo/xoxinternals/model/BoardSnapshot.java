@@ -0,0 +1,170 @@
+package org.tpiggo.xoxinternals.model;
+
+/**
+ * Immutable state of a board at a given version. A board publishes a new snapshot on every occupy, so snapshots can be
+ * handed to any amount of concurrent readers and serializers without copying or locking. Successive snapshots share
+ * all rows that were not modified by the move in between.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class BoardSnapshot implements BoardReadOnly {
+
+    private final int width;
+    private final int height;
+    private final int lineLength;
+
+    // Amount of claimed cells. Increases by one with every occupy, so it also serves as version of the board.
+    private final int version;
+
+    // Cell values, indexed [y][x]. Never modified once the snapshot is published.
+    private final int[][] cells;
+
+    // Owner of the first completed line: 0 if none, 1 for the first player, 2 for the second player.
+    private final int lineOwner;
+
+    // Bitset of free cells, bit i representing the cell at x = i % width, y = i / width. Never modified either.
+    private final long[] freeCells;
+
+    BoardSnapshot(int width, int height, int lineLength, int version, int[][] cells, int lineOwner, long[] freeCells) {
+        this.width = width;
+        this.height = height;
+        this.lineLength = lineLength;
+        this.version = version;
+        this.cells = cells;
+        this.lineOwner = lineOwner;
+        this.freeCells = freeCells;
+    }
+
+    /**
+     * Creates the snapshot of an empty board.
+     */
+    static BoardSnapshot empty(int width, int height, int lineLength) {
+        int cellCount = width * height;
+        long[] freeCells = new long[(cellCount + 63) >>> 6];
+        for (int cell = 0; cell < cellCount; cell++)
+            freeCells[cell >>> 6] |= 1L << cell;
+        return new BoardSnapshot(width, height, lineLength, 0, new int[height][width], 0, freeCells);
+    }
+
+    /**
+     * Creates the successor of this snapshot, with one additional cell claimed. Only the affected row is copied.
+     *
+     * @param value     as the new cell value. 1 for the first player, 2 for the second player.
+     * @param lineOwner as the owner of a completed line after the claim, or 0 if there is none.
+     */
+    BoardSnapshot withCell(int xPos, int yPos, int value, int lineOwner) {
+        int[][] nextCells = cells.clone();
+        nextCells[yPos] = cells[yPos].clone();
+        nextCells[yPos][xPos] = value;
+        long[] nextFreeCells = freeCells.clone();
+        int cell = yPos * width + xPos;
+        nextFreeCells[cell >>> 6] &= ~(1L << cell);
+        return new BoardSnapshot(width, height, lineLength, version + 1, nextCells, lineOwner, nextFreeCells);
+    }
+
+    /**
+     * Getter for the version of this snapshot.
+     *
+     * @return the amount of cells claimed on the board when this snapshot was taken.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Compact view of the free cells. Use with freeCellWordCount to iterate over all free cells without allocation.
+     *
+     * @param word as the index of the 64-cell block to retrieve.
+     * @return bitset of the free cells with indexes [64 * word, 64 * word + 63]. Bit i represents cell 64 * word + i.
+     */
+    public long freeCellWord(int word) {
+        return freeCells[word];
+    }
+
+    /**
+     * @return the amount of 64-cell blocks the free cell bitset consists of.
+     */
+    public int freeCellWordCount() {
+        return freeCells.length;
+    }
+
+    /**
+     * Tells whether one player has claimed lineLength cells on a row, column or diagonal.
+     *
+     * @return boolean telling whether the board holds a completed line.
+     */
+    public boolean isThreeInALine() {
+        return lineOwner != 0;
+    }
+
+    /**
+     * If there is a completed line, this method returns the value of its cells (1 for the first player, 2 for the
+     * second player). If there is not, it returns 0.
+     *
+     * @return an int indicating the occupier of the line or 0.
+     */
+    public int getThreeInALineCharIfExists() {
+        return lineOwner;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return version == 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return version == width * height;
+    }
+
+    @Override
+    public boolean isFree(int xPos, int yPos) {
+        return xPos >= 0 && xPos < width && yPos >= 0 && yPos < height && cells[yPos][xPos] == 0;
+    }
+
+    /**
+     * Returns the cells of this snapshot without copying them. The returned arrays are shared with other readers and
+     * must not be modified.
+     *
+     * @return matrix of cell values, indexed [y][x].
+     */
+    @Override
+    public int[][] getCells() {
+        return cells;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder separator = new StringBuilder(" -");
+        for (int x = 0; x < width; x++)
+            separator.append("----");
+
+        StringBuilder sb = new StringBuilder("");
+        sb.append("\n").append(separator).append("\n");
+        for (int y = 0; y < height; y++) {
+            sb.append(" | ");
+            for (int x = 0; x < width; x++) {
+                sb.append(cells[y][x]);
+                sb.append(" | ");
+            }
+            sb.append("\n");
+            sb.append(separator).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package org.tpiggo.xoxinternals.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Immutable record of a game: board dimensions, all moves in the order they were applied, and the current player and
+ * finished flag at the time the record was taken. Any intermediate position can be rebuilt from it.
+ * <p>
+ * The binary encoding (see writeTo) is width, height and line length (1 byte each), flags (1), move count (2), the
+ * claimed cells and one owner bit per move. Cells are packed into 4 bits on boards of up to 16 cells, into 1 byte on
+ * boards of up to 256 cells and into 2 bytes otherwise. A finished classic game encodes in 12 bytes.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public final class GameHistory {
+
+    private static final int SECOND_PLAYER_TO_MOVE = 1;
+    private static final int FINISHED = 2;
+
+    private final int width;
+    private final int height;
+    private final int lineLength;
+    private final int flags;
+
+    // Claimed cells in move order, and per move whether the second player made it.
+    private final short[] cells;
+    private final long[] secondPlayerMoves;
+
+    GameHistory(int width, int height, int lineLength, boolean secondPlayerToMove, boolean finished, short[] cells,
+                long[] secondPlayerMoves) {
+        this.width = width;
+        this.height = height;
+        this.lineLength = lineLength;
+        this.flags = (secondPlayerToMove ? SECOND_PLAYER_TO_MOVE : 0) | (finished ? FINISHED : 0);
+        this.cells = cells;
+        this.secondPlayerMoves = secondPlayerMoves;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    /**
+     * @return the amount of recorded moves.
+     */
+    public int getMoveCount() {
+        return cells.length;
+    }
+
+    /**
+     * @return the claimed cells in move order, y * width + x each.
+     */
+    public int[] getMoves() {
+        int[] moves = new int[cells.length];
+        for (int ply = 0; ply < cells.length; ply++)
+            moves[ply] = cells[ply];
+        return moves;
+    }
+
+    /**
+     * @param ply as the index of a move. Range: [0, moveCount)
+     * @return the cell claimed by the move, y * width + x.
+     */
+    public int getCell(int ply) {
+        return cells[ply];
+    }
+
+    /**
+     * @param ply as the index of a move. Range: [0, moveCount)
+     * @return the index of the player who made the move. Range: [0-1]
+     */
+    public int getPlayerIndex(int ply) {
+        return (secondPlayerMoves[ply >>> 6] & (1L << ply)) == 0 ? 0 : 1;
+    }
+
+    /**
+     * @return the index of the player to move when the record was taken.
+     */
+    public int getCurrentPlayerIndex() {
+        return (flags & SECOND_PLAYER_TO_MOVE) == 0 ? 0 : 1;
+    }
+
+    /**
+     * @return whether the game was finished when the record was taken.
+     */
+    public boolean isFinished() {
+        return (flags & FINISHED) != 0;
+    }
+
+    /**
+     * Rebuilds the board after a number of moves.
+     *
+     * @param ply as the amount of moves to apply, 0 for the empty board. Range: [0, moveCount]
+     * @return the board after the first ply moves.
+     */
+    public BoardSnapshot getPosition(int ply) {
+        if (ply < 0 || ply > cells.length)
+            throw new RuntimeException("Position " + ply + " is not part of the history.");
+        if (PackedGameState.supports(width, height, lineLength))
+            return PackedGameState.snapshot(positionState(ply));
+        Board board = new Board(width, height, lineLength);
+        occupy(board, ply);
+        return board.getSnapshot();
+    }
+
+    /**
+     * @return the size of the binary encoding, in bytes. Not part of the JSON representation.
+     */
+    @JsonIgnore
+    public int getEncodedSize() {
+        return 6 + cellBytes(cells.length) + ((cells.length + 7) >>> 3);
+    }
+
+    /**
+     * Writes the binary encoding of this history.
+     */
+    public void writeTo(ByteBuffer target) {
+        target.put((byte) width).put((byte) height).put((byte) lineLength).put((byte) flags)
+                .putShort((short) cells.length);
+        int boardCells = width * height;
+        if (boardCells <= 16) {
+            for (int ply = 0; ply < cells.length; ply += 2)
+                target.put((byte) (cells[ply] | (ply + 1 < cells.length ? cells[ply + 1] << 4 : 0)));
+        } else if (boardCells <= 256) {
+            for (short cell : cells)
+                target.put((byte) cell);
+        } else {
+            for (short cell : cells)
+                target.putShort(cell);
+        }
+        for (int ply = 0; ply < cells.length; ply += 8)
+            target.put((byte) (secondPlayerMoves[ply >>> 6] >>> (ply & 63)));
+    }
+
+    /**
+     * Reads a history written by writeTo.
+     */
+    public static GameHistory readFrom(ByteBuffer source) {
+        int width = source.get();
+        int height = source.get();
+        int lineLength = source.get();
+        int flags = source.get();
+        short[] cells = new short[source.getShort()];
+        int boardCells = width * height;
+        if (boardCells <= 16) {
+            for (int ply = 0; ply < cells.length; ply += 2) {
+                int packed = source.get();
+                cells[ply] = (short) (packed & 0xF);
+                if (ply + 1 < cells.length)
+                    cells[ply + 1] = (short) ((packed >>> 4) & 0xF);
+            }
+        } else if (boardCells <= 256) {
+            for (int ply = 0; ply < cells.length; ply++)
+                cells[ply] = (short) (source.get() & 0xFF);
+        } else {
+            for (int ply = 0; ply < cells.length; ply++)
+                cells[ply] = source.getShort();
+        }
+        long[] secondPlayerMoves = new long[(cells.length + 63) >>> 6];
+        for (int ply = 0; ply < cells.length; ply += 8)
+            secondPlayerMoves[ply >>> 6] |= (source.get() & 0xFFL) << (ply & 63);
+        return new GameHistory(width, height, lineLength, (flags & SECOND_PLAYER_TO_MOVE) != 0,
+                (flags & FINISHED) != 0, cells, secondPlayerMoves);
+    }
+
+    /**
+     * Assembles the packed state after the first ply moves. Current player and finished flag are only those of the
+     * record if ply covers all moves.
+     */
+    long positionState(int ply) {
+        long state = 0;
+        for (int i = 0; i < ply; i++) {
+            state = PackedGameState.withCurrentPlayer(state, getPlayerIndex(i));
+            state = PackedGameState.withMove(state, cells[i]);
+        }
+        return state;
+    }
+
+    /**
+     * Claims the cells of the first ply moves on a board.
+     */
+    void occupy(Board board, int ply) {
+        for (int i = 0; i < ply; i++) {
+            try {
+                board.occupy(cells[i] % width, cells[i] / width, getPlayerIndex(i) == 0);
+            } catch (ModelAccessException e) {
+                throw new RuntimeException("History claims a cell twice.", e);
+            }
+        }
+    }
+
+    private int cellBytes(int moveCount) {
+        int boardCells = width * height;
+        if (boardCells <= 16)
+            return (moveCount + 1) >>> 1;
+        return boardCells <= 256 ? moveCount : 2 * moveCount;
+    }
+}
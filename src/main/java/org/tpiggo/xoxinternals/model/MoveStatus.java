@@ -0,0 +1,71 @@
+package org.tpiggo.xoxinternals.model;
+
+/**
+ * Status codes reported for submitted moves. Moves are rejected on a regular basis (a player acting out of turn, two
+ * clients racing for the same cell), so rejections are reported as plain codes rather than exceptions.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public final class MoveStatus {
+
+    /**
+     * The move was applied.
+     */
+    public static final int APPLIED = 0;
+
+    /**
+     * No game is registered under the provided id.
+     */
+    public static final int GAME_NOT_FOUND = 1;
+
+    /**
+     * The submitting player does not participate in the game.
+     */
+    public static final int NOT_A_PARTICIPANT = 2;
+
+    /**
+     * The game has already ended.
+     */
+    public static final int GAME_OVER = 3;
+
+    /**
+     * It is the other player's turn.
+     */
+    public static final int NOT_YOUR_TURN = 4;
+
+    /**
+     * The move refers to no cell of the board, e.g. an action index beyond the offered actions.
+     */
+    public static final int INVALID_ACTION = 5;
+
+    /**
+     * The targeted cell is already claimed.
+     */
+    public static final int CELL_OCCUPIED = 6;
+
+    /**
+     * The move could not be processed, e.g. because the submitting thread was interrupted or the move log is
+     * unavailable.
+     */
+    public static final int UNAVAILABLE = 7;
+
+    // Names of all codes, indexed by code.
+    private static final String[] NAMES = {"APPLIED", "GAME_NOT_FOUND", "NOT_A_PARTICIPANT", "GAME_OVER",
+            "NOT_YOUR_TURN", "INVALID_ACTION", "CELL_OCCUPIED", "UNAVAILABLE"};
+
+    /**
+     * Amount of distinct status codes. Codes range from 0 to COUNT - 1.
+     */
+    public static final int COUNT = NAMES.length;
+
+    private MoveStatus() {
+    }
+
+    /**
+     * @param status as a status code.
+     * @return the name of the status code.
+     */
+    public static String nameOf(int status) {
+        return (status >= 0 && status < COUNT) ? NAMES[status] : "UNKNOWN";
+    }
+}
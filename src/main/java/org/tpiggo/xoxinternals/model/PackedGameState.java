@@ -0,0 +1,217 @@
+package org.tpiggo.xoxinternals.model;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Encodes the complete mutable state of a classic 3x3 Xox game in a single long, so it can be read with one volatile
+ * load and updated with one compare-and-swap. The cells are not stored as such: all 3^9 cell assignments form a graph
+ * of interned positions, numbered by base-3 position index (digit i holds cell i: 0 free, 1 first player, 2 second
+ * player). A state points at its position node, all per position data (cells of both players, whether the position
+ * ends the game, the board view) is precomputed or cached once per node and shared by all games. Layout, starting at
+ * the least significant bit:
+ * <ul>
+ * <li>bits 0-14: position index, in [0, 3^9)</li>
+ * <li>bit 15: index of the current player</li>
+ * <li>bit 16: finished flag</li>
+ * <li>bits 17-52: move history, one 4-bit cell index per move in the order the moves were applied. The amount of
+ * recorded moves equals the amount of claimed cells.</li>
+ * </ul>
+ * Claiming cell i for player p moves to the child node index + (p + 1) * 3^i, so a move is an addition and a table
+ * lookup, without branches. All methods are pure functions on the encoded state.
+ *
+ * @author Maximilian Schiedermeier
+ */
+final class PackedGameState {
+
+    static final int CELLS = 9;
+    static final int FULL_MASK = (1 << CELLS) - 1;
+
+    // Amount of distinct cell assignments of a 3x3 board (3^9).
+    static final int POSITIONS = 19683;
+
+    private static final long POSITION_MASK = (1 << 15) - 1;
+    private static final int CURRENT_PLAYER_SHIFT = 15;
+    private static final long CURRENT_PLAYER_BIT = 1L << CURRENT_PLAYER_SHIFT;
+    private static final int FINISHED_SHIFT = 16;
+    private static final long FINISHED_BIT = 1L << FINISHED_SHIFT;
+    private static final int HISTORY_SHIFT = 17;
+
+    // All eight lines that win the game: three rows, three columns, two diagonals.
+    private static final int[] WINNING_LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    // Per cell i, 3^i: the weight of the cell's digit within a position index.
+    private static final int[] CELL_WEIGHTS = new int[CELLS];
+
+    // Per 9-bit mask, the base-3 number with a 1-digit wherever the mask has a set bit. Used to index positions.
+    private static final int[] TERNARY_DIGITS = new int[1 << CELLS];
+
+    // Per position, the cells of the first player in bits 0-8 and those of the second player in bits 9-17.
+    private static final int[] POSITION_CELLS = new int[POSITIONS];
+
+    // Per position, set if the position ends the game: a completed line or a full board.
+    private static final long[] TERMINAL_POSITIONS = new long[(POSITIONS + 63) >>> 6];
+
+    // Immutable board views, shared by all games that pass through the same position. Filled on first use.
+    private static final AtomicReferenceArray<BoardSnapshot> SNAPSHOTS = new AtomicReferenceArray<>(POSITIONS);
+
+    static {
+        int weight = 1;
+        for (int cell = 0; cell < CELLS; cell++) {
+            CELL_WEIGHTS[cell] = weight;
+            weight *= 3;
+        }
+        for (int mask = 0; mask <= FULL_MASK; mask++) {
+            int digits = 0;
+            for (int cell = CELLS - 1; cell >= 0; cell--)
+                digits = digits * 3 + ((mask >>> cell) & 1);
+            TERNARY_DIGITS[mask] = digits;
+        }
+        for (int position = 0; position < POSITIONS; position++) {
+            int first = 0;
+            int second = 0;
+            int digits = position;
+            for (int cell = 0; cell < CELLS; cell++, digits /= 3) {
+                if (digits % 3 == 1)
+                    first |= 1 << cell;
+                else if (digits % 3 == 2)
+                    second |= 1 << cell;
+            }
+            POSITION_CELLS[position] = first | (second << CELLS);
+            if (containsLine(first) || containsLine(second) || (first | second) == FULL_MASK)
+                TERMINAL_POSITIONS[position >>> 6] |= 1L << position;
+        }
+    }
+
+    private PackedGameState() {
+    }
+
+    /**
+     * Tells whether games on a board of the provided dimensions can be encoded.
+     */
+    static boolean supports(int width, int height, int lineLength) {
+        return width == 3 && height == 3 && lineLength == 3;
+    }
+
+    static int playerCells(long state, int playerIndex) {
+        return (POSITION_CELLS[positionIndex(state)] >>> (playerIndex * CELLS)) & FULL_MASK;
+    }
+
+    static int occupiedCells(long state) {
+        int cells = POSITION_CELLS[positionIndex(state)];
+        return (cells | (cells >>> CELLS)) & FULL_MASK;
+    }
+
+    static int currentPlayer(long state) {
+        return (state & CURRENT_PLAYER_BIT) == 0 ? 0 : 1;
+    }
+
+    static boolean isFinished(long state) {
+        return (state & FINISHED_BIT) != 0;
+    }
+
+    /**
+     * @return 0 if no player has three in a line, 1 for the first player, 2 for the second player.
+     */
+    static int lineOwner(long state) {
+        int first = playerCells(state, 0);
+        int second = playerCells(state, 1);
+        for (int line : WINNING_LINES) {
+            if ((first & line) == line)
+                return 1;
+            if ((second & line) == line)
+                return 2;
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if the provided 9-bit cell mask contains at least one winning line.
+     */
+    static boolean containsLine(int cells) {
+        for (int line : WINNING_LINES)
+            if ((cells & line) == line)
+                return true;
+        return false;
+    }
+
+    /**
+     * Claims a cell for the current player and passes the turn. Flags the game finished if the claim completes a line
+     * or fills the board. Does not validate the move.
+     *
+     * @param cell as the cell index, y * 3 + x.
+     */
+    static long withMove(long state, int cell) {
+        int child = positionIndex(state) + (currentPlayer(state) + 1) * CELL_WEIGHTS[cell];
+        long finished = ((TERMINAL_POSITIONS[child >>> 6] >>> child) & 1) << FINISHED_SHIFT;
+        long history = (long) cell << (HISTORY_SHIFT + 4 * moveCount(state));
+        return ((state & ~POSITION_MASK) ^ CURRENT_PLAYER_BIT) | child | history | finished;
+    }
+
+    /**
+     * @return the amount of moves applied to a state.
+     */
+    static int moveCount(long state) {
+        return Integer.bitCount(occupiedCells(state));
+    }
+
+    /**
+     * @param ply as the index of a move, in the order moves were applied. Range: [0, moveCount)
+     * @return the cell claimed by the move.
+     */
+    static int historyCell(long state, int ply) {
+        return (int) (state >>> (HISTORY_SHIFT + 4 * ply)) & 0xF;
+    }
+
+    static long withCurrentPlayer(long state, int playerIndex) {
+        return playerIndex == 0 ? state & ~CURRENT_PLAYER_BIT : state | CURRENT_PLAYER_BIT;
+    }
+
+    static long withFinished(long state) {
+        return state | FINISHED_BIT;
+    }
+
+    /**
+     * @return the position node of a state, the unique number in [0, 3^9) where each base-3 digit holds the value of
+     * one cell.
+     */
+    static int positionIndex(long state) {
+        return (int) (state & POSITION_MASK);
+    }
+
+    /**
+     * @return the position node with the provided cells. The cell sets must not overlap.
+     */
+    static int positionIndex(int firstPlayerCells, int secondPlayerCells) {
+        return TERNARY_DIGITS[firstPlayerCells] + 2 * TERNARY_DIGITS[secondPlayerCells];
+    }
+
+    /**
+     * Resolves the immutable board view of a state. Views are cached per position, so this only allocates the first
+     * time any game reaches a position.
+     */
+    static BoardSnapshot snapshot(long state) {
+        int index = positionIndex(state);
+        BoardSnapshot snapshot = SNAPSHOTS.get(index);
+        if (snapshot == null) {
+            int[][] cells = new int[3][3];
+            for (int cell = 0; cell < CELLS; cell++) {
+                if ((playerCells(state, 0) & (1 << cell)) != 0)
+                    cells[cell / 3][cell % 3] = 1;
+                else if ((playerCells(state, 1) & (1 << cell)) != 0)
+                    cells[cell / 3][cell % 3] = 2;
+            }
+            long[] freeCells = {~occupiedCells(state) & FULL_MASK};
+            snapshot = new BoardSnapshot(3, 3, 3, Integer.bitCount(occupiedCells(state)), cells, lineOwner(state),
+                    freeCells);
+
+            // Racing threads build equal snapshots, whichever is stored first is kept.
+            if (!SNAPSHOTS.compareAndSet(index, null, snapshot))
+                snapshot = SNAPSHOTS.get(index);
+        }
+        return snapshot;
+    }
+}
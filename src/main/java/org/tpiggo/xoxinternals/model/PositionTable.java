@@ -0,0 +1,208 @@
+package org.tpiggo.xoxinternals.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Precomputed game theoretic values of all classic 3x3 positions. Every cell assignment has an entry, indexed by its
+ * base-3 position number, so any position is looked up in O(1) without search. Of the 19683 entries, the 5478
+ * positions reachable in play are filled, all others are flagged unreachable.
+ * <p>
+ * An entry is a 16-bit value, decoded with the static accessors of this class:
+ * <ul>
+ * <li>bits 0-8: best moves of the player to move, bit i set for cell i. Empty for positions where the game is
+ * over.</li>
+ * <li>bits 9-10: outcome for the player to move under perfect play, see OUTCOME_WIN, OUTCOME_DRAW, OUTCOME_LOSS. 0
+ * for unreachable positions.</li>
+ * <li>bits 11-14: amount of moves until the game ends under perfect play.</li>
+ * </ul>
+ * The table ships as the classpath resource xox-positions.bin, a header [int magic][int version][int entry count]
+ * followed by the big endian entries. It is memory mapped if the resource is a plain file, and copied to direct memory
+ * otherwise (e.g. if packaged in a jar). Regenerate it with the main method after changing the solver.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public final class PositionTable {
+
+    public static final int OUTCOME_UNREACHABLE = 0;
+    public static final int OUTCOME_WIN = 1;
+    public static final int OUTCOME_DRAW = 2;
+    public static final int OUTCOME_LOSS = 3;
+
+    static final String RESOURCE = "/xox-positions.bin";
+    private static final int MAGIC = 0x584F5850;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private static final int OUTCOME_SHIFT = 9;
+    private static final int PLIES_SHIFT = 11;
+
+    private static volatile PositionTable instance;
+
+    private final ShortBuffer entries;
+
+    private PositionTable(ByteBuffer data) {
+        if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION
+                || data.getInt() != PackedGameState.POSITIONS || data.remaining() != 2 * PackedGameState.POSITIONS)
+            throw new RuntimeException("Position table resource is corrupt.");
+        entries = data.asShortBuffer();
+    }
+
+    /**
+     * @return the shared table, loaded from the classpath on first use.
+     */
+    public static PositionTable getInstance() {
+        PositionTable table = instance;
+        if (table == null) {
+            synchronized (PositionTable.class) {
+                table = instance;
+                if (table == null) {
+                    table = new PositionTable(load());
+                    instance = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Looks up the entry of the current position of a classic game.
+     *
+     * @return the entry, or 0 (unreachable) for games that are not played on a classic 3x3 board.
+     */
+    public int lookup(XoxGame game) {
+        return game.isPacked() ? lookup(game.packedState()) : 0;
+    }
+
+    /**
+     * Looks up a position by the cells of both players.
+     *
+     * @param firstPlayerCells  as the cells of the first player, bit i for the cell at x = i % 3, y = i / 3.
+     * @param secondPlayerCells as the cells of the second player.
+     * @return the entry of the position.
+     */
+    public int lookup(int firstPlayerCells, int secondPlayerCells) {
+        if (((firstPlayerCells | secondPlayerCells) & ~PackedGameState.FULL_MASK) != 0
+                || (firstPlayerCells & secondPlayerCells) != 0)
+            return 0;
+        return entries.get(PackedGameState.positionIndex(firstPlayerCells, secondPlayerCells)) & 0xFFFF;
+    }
+
+    int lookup(long state) {
+        return entries.get(PackedGameState.positionIndex(state)) & 0xFFFF;
+    }
+
+    public static int getBestMoves(int entry) {
+        return entry & PackedGameState.FULL_MASK;
+    }
+
+    public static int getOutcome(int entry) {
+        return (entry >>> OUTCOME_SHIFT) & 3;
+    }
+
+    public static int getPliesToEnd(int entry) {
+        return (entry >>> PLIES_SHIFT) & 0xF;
+    }
+
+    /**
+     * Builds the table by solving every position with the negamax solver. Positions are enumerated from the empty
+     * board, so exactly the reachable ones are filled.
+     *
+     * @return the encoded table, including header.
+     */
+    static ByteBuffer generate() {
+        ByteBuffer data = ByteBuffer.allocate(HEADER_BYTES + 2 * PackedGameState.POSITIONS);
+        data.putInt(MAGIC).putInt(VERSION).putInt(PackedGameState.POSITIONS);
+        fill(data, 0, 0);
+        data.rewind();
+        return data;
+    }
+
+    private static void fill(ByteBuffer data, int first, int second) {
+        int index = PackedGameState.positionIndex(first, second);
+        if (data.getShort(HEADER_BYTES + 2 * index) != 0)
+            return;
+
+        // The first player moves whenever both players own the same amount of cells.
+        boolean firstToMove = Integer.bitCount(first) == Integer.bitCount(second);
+        int mover = firstToMove ? first : second;
+        int opponent = firstToMove ? second : first;
+        int free = ~(first | second) & PackedGameState.FULL_MASK;
+        int score = XoxSolver.negamax(mover, opponent);
+        boolean over = PackedGameState.containsLine(opponent) || free == 0;
+
+        int bestMoves = 0;
+        if (!over) {
+            for (int cell = 0; cell < PackedGameState.CELLS; cell++)
+                if ((free & (1 << cell)) != 0 && -XoxSolver.negamax(opponent, mover | (1 << cell)) == score)
+                    bestMoves |= 1 << cell;
+        }
+
+        // Scores encode the free cells left at the end of the game: +-(1 + free cells), 0 for a draw on a full board.
+        int outcome = score > 0 ? OUTCOME_WIN : score < 0 ? OUTCOME_LOSS : OUTCOME_DRAW;
+        int plies = Integer.bitCount(free) - (score == 0 ? 0 : Math.abs(score) - 1);
+        data.putShort(HEADER_BYTES + 2 * index,
+                (short) (bestMoves | (outcome << OUTCOME_SHIFT) | (plies << PLIES_SHIFT)));
+
+        if (over)
+            return;
+        for (int cell = 0; cell < PackedGameState.CELLS; cell++) {
+            if ((free & (1 << cell)) == 0)
+                continue;
+            if (firstToMove)
+                fill(data, first | (1 << cell), second);
+            else
+                fill(data, first, second | (1 << cell));
+        }
+    }
+
+    private static ByteBuffer load() {
+        URL resource = PositionTable.class.getResource(RESOURCE);
+        if (resource == null)
+            throw new RuntimeException("Position table resource " + RESOURCE + " is missing.");
+        try {
+            if ("file".equals(resource.getProtocol())) {
+                try (FileChannel channel = FileChannel.open(Paths.get(resource.toURI()), StandardOpenOption.READ)) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            try (InputStream input = resource.openStream()) {
+                ByteBuffer data = ByteBuffer.allocateDirect(HEADER_BYTES + 2 * PackedGameState.POSITIONS);
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = input.read(chunk)) > 0) {
+                    if (read > data.remaining())
+                        throw new RuntimeException("Position table resource is corrupt.");
+                    data.put(chunk, 0, read);
+                }
+                data.flip();
+                return data;
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new RuntimeException("Position table resource can not be read.", e);
+        }
+    }
+
+    /**
+     * Writes a freshly generated table.
+     *
+     * @param args as the target file, typically src/main/resources/xox-positions.bin.
+     */
+    public static void main(String[] args) throws IOException {
+        Path target = Paths.get(args.length > 0 ? args[0] : "src/main/resources" + RESOURCE);
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer data = generate();
+            while (data.hasRemaining())
+                channel.write(data);
+        }
+    }
+}
@@ -1,37 +1,283 @@
 package org.tpiggo.xoxinternals.model;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 /**
- * Represents the state of a Xox running game.
+ * Represents the state of a Xox running game. Classic 3x3 games keep their entire mutable state (cells, current player,
+ * finished flag, move history) in a single packed long, so moves are validated and applied with one compare-and-swap
+ * and reads never block. Games on other board sizes are backed by a Board and serialize their moves on the game
+ * instance.
  *
  * @author Maximilian Schiedermeier
  */
 public class XoxGame implements XoxGameReadOnly {
 
+    private static final AtomicLongFieldUpdater<XoxGame> STATE =
+            AtomicLongFieldUpdater.newUpdater(XoxGame.class, "state");
+
     // Read only access to the parameters of the two involved players.
     private final Player[] players = new Player[2];
 
-    // Reference to current state of the board
-    Board board;
+    // Reference to current state of the board. Null for packed games.
+    final Board board;
+
+    // Complete state of packed games, see PackedGameState. Unused for board backed games.
+    private volatile long state;
 
-    // Internal flag to indicate whether the game has already ended or still running.
-    private boolean finished;
+    // Internal flag to indicate whether the game has already ended or still running. Only used for board backed games.
+    private volatile boolean finished;
 
-    // Internal index counter for the current player. Range: [0-1]
-    private int currentPlayer;
+    // Internal index counter for the current player. Range: [0-1]. Only used for board backed games.
+    private volatile int currentPlayer;
+
+    // Players whose moves are chosen by the server, bit i set for player index i.
+    private final int botMask;
+
+    // Move history of board backed games, cell << 1 | player index per move. Grown on demand, guarded by the monitor.
+    private short[] moves;
+    private int moveCount;
 
     public XoxGame(Player startPlayer, Player secondPlayer) {
+        this(startPlayer, secondPlayer, 3, 3, 3);
+    }
+
+    /**
+     * Constructor for games on generalized m,n,k boards.
+     *
+     * @param width      as the amount of columns of the board.
+     * @param height     as the amount of rows of the board.
+     * @param lineLength as the amount of cells in a line required to win.
+     */
+    public XoxGame(Player startPlayer, Player secondPlayer, int width, int height, int lineLength) {
+        this(startPlayer, secondPlayer, width, height, lineLength, 0);
+    }
+
+    /**
+     * Constructor for games with server controlled players.
+     *
+     * @param botMask as the players whose moves are chosen by the server, bit 0 for the start player, bit 1 for the
+     *                second player.
+     */
+    public XoxGame(Player startPlayer, Player secondPlayer, int width, int height, int lineLength, int botMask) {
+        if ((botMask & ~3) != 0)
+            throw new RuntimeException("Bot mask can only flag the two players of a game.");
+        this.botMask = botMask;
         players[0] = startPlayer;
         players[1] = secondPlayer;
         currentPlayer = 0;
-        board = new Board();
+        board = PackedGameState.supports(width, height, lineLength) ? null : new Board(width, height, lineLength);
+    }
+
+    /**
+     * Recreates a game from its history. The history is not validated.
+     *
+     * @param history as the history of the game, see getHistory. Defines board dimensions and state.
+     * @return a game in the state recorded by the history, with the same history.
+     */
+    public static XoxGame restore(Player startPlayer, Player secondPlayer, GameHistory history) {
+        return restore(startPlayer, secondPlayer, history, 0);
+    }
+
+    /**
+     * Variant of restore for games with server controlled players.
+     *
+     * @param botMask as the players whose moves are chosen by the server, see getBotMask.
+     */
+    public static XoxGame restore(Player startPlayer, Player secondPlayer, GameHistory history, int botMask) {
+        XoxGame game = new XoxGame(startPlayer, secondPlayer, history.getWidth(), history.getHeight(),
+                history.getLineLength(), botMask);
+        if (game.isPacked()) {
+            long restored = history.positionState(history.getMoveCount());
+            restored = PackedGameState.withCurrentPlayer(restored, history.getCurrentPlayerIndex());
+            game.state = history.isFinished() ? PackedGameState.withFinished(restored) : restored;
+            return game;
+        }
+        synchronized (game) {
+            history.occupy(game.board, history.getMoveCount());
+            for (int ply = 0; ply < history.getMoveCount(); ply++)
+                game.recordMove(history.getCell(ply), history.getPlayerIndex(ply));
+            game.currentPlayer = history.getCurrentPlayerIndex();
+            game.finished = history.isFinished();
+        }
+        return game;
+    }
+
+    /**
+     * Captures the history of this game in one consistent read, concurrent moves are either fully included or not at
+     * all. Classic games record their history within the packed state, so this reads a single long.
+     *
+     * @return all moves of the game, in the order they were applied, along with current player and finished flag.
+     */
+    public GameHistory getHistory() {
+        if (isPacked()) {
+            long current = state;
+            int moveCount = PackedGameState.moveCount(current);
+            short[] cells = new short[moveCount];
+            long[] secondPlayerMoves = new long[1];
+            int secondPlayerCells = PackedGameState.playerCells(current, 1);
+            for (int ply = 0; ply < moveCount; ply++) {
+                cells[ply] = (short) PackedGameState.historyCell(current, ply);
+                if ((secondPlayerCells & (1 << cells[ply])) != 0)
+                    secondPlayerMoves[0] |= 1L << ply;
+            }
+            return new GameHistory(3, 3, 3, PackedGameState.currentPlayer(current) == 1,
+                    PackedGameState.isFinished(current), cells, secondPlayerMoves);
+        }
+        synchronized (this) {
+            short[] cells = new short[moveCount];
+            long[] secondPlayerMoves = new long[(moveCount + 63) >>> 6];
+            for (int ply = 0; ply < moveCount; ply++) {
+                cells[ply] = (short) (moves[ply] >>> 1);
+                if ((moves[ply] & 1) != 0)
+                    secondPlayerMoves[ply >>> 6] |= 1L << ply;
+            }
+            return new GameHistory(board.getWidth(), board.getHeight(), board.getLineLength(), currentPlayer == 1,
+                    finished, cells, secondPlayerMoves);
+        }
+    }
+
+    /**
+     * Appends a move to the history of a board backed game. Must be called while holding the game's monitor.
+     */
+    private void recordMove(int cell, int playerIndex) {
+        if (moves == null || moveCount == moves.length)
+            moves = Arrays.copyOf(moves == null ? new short[0] : moves, Math.max(8, 2 * moveCount));
+        moves[moveCount++] = (short) ((cell << 1) | playerIndex);
+    }
+
+    /**
+     * Tells whether the state of this game is kept in a single packed long.
+     *
+     * @return true for classic 3x3 games, false for games backed by a Board.
+     */
+    public boolean isPacked() {
+        return board == null;
+    }
+
+    /**
+     * @return the complete state of a packed game, see PackedGameState.
+     */
+    long packedState() {
+        return state;
+    }
+
+    /**
+     * @return the players whose moves are chosen by the server, bit 0 for the start player, bit 1 for the second.
+     */
+    public int getBotMask() {
+        return botMask;
+    }
+
+    /**
+     * @param playerIndex as the index of a player. Range: [0-1]
+     * @return true if the moves of the player are chosen by the server.
+     */
+    public boolean isBot(int playerIndex) {
+        return (botMask & (1 << playerIndex)) != 0;
     }
 
     public boolean isFinished() {
-        return finished;
+        return isPacked() ? PackedGameState.isFinished(state) : finished;
     }
 
     public void markAsFinished() {
-        finished = true;
+        if (!isPacked()) {
+            synchronized (this) {
+                finished = true;
+            }
+            return;
+        }
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, PackedGameState.withFinished(current)));
+    }
+
+    /**
+     * Atomically validates and applies a move. Claims the cell for the player, passes the turn to the other player and
+     * flags the game as finished if the move completes a line or fills the board. For packed games validation is a
+     * handful of bit tests and the update a single compare-and-swap, retried if a concurrent move interfered.
+     *
+     * @param xPos        as the column of the cell to claim.
+     * @param yPos        as the row of the cell to claim.
+     * @param playerIndex as the index of the claiming player. Range: [0-1]
+     * @return MoveStatus.APPLIED if the move was applied, otherwise the MoveStatus code telling why it was rejected.
+     */
+    public int claim(int xPos, int yPos, int playerIndex) {
+        BoardSnapshot board = getBoard();
+        if (xPos < 0 || xPos >= board.getWidth() || yPos < 0 || yPos >= board.getHeight())
+            return claimCell(-1, playerIndex);
+        return claimCell(yPos * board.getWidth() + xPos, playerIndex);
+    }
+
+    /**
+     * Variant of claim that addresses the cell by index.
+     *
+     * @param cell        as the index of the cell to claim, y * width + x. Negative or too large indexes are rejected
+     *                    with MoveStatus.INVALID_ACTION.
+     * @param playerIndex as the index of the claiming player. Range: [0-1]
+     * @return MoveStatus.APPLIED if the move was applied, otherwise the MoveStatus code telling why it was rejected.
+     */
+    public int claimCell(int cell, int playerIndex) {
+        if (!isPacked())
+            return claimCellOnBoard(cell, playerIndex);
+
+        long current;
+        long next;
+        do {
+            current = state;
+            if (PackedGameState.isFinished(current))
+                return MoveStatus.GAME_OVER;
+            if (PackedGameState.currentPlayer(current) != playerIndex)
+                return MoveStatus.NOT_YOUR_TURN;
+            if (cell < 0 || cell >= PackedGameState.CELLS)
+                return MoveStatus.INVALID_ACTION;
+            if ((PackedGameState.occupiedCells(current) & (1 << cell)) != 0)
+                return MoveStatus.CELL_OCCUPIED;
+            next = PackedGameState.withMove(current, cell);
+        } while (!STATE.compareAndSet(this, current, next));
+        return MoveStatus.APPLIED;
+    }
+
+    /**
+     * Board backed variant of claimCell. Moves on the same game are serialized by the game's monitor.
+     */
+    private synchronized int claimCellOnBoard(int cell, int playerIndex) {
+        if (finished)
+            return MoveStatus.GAME_OVER;
+        if (currentPlayer != playerIndex)
+            return MoveStatus.NOT_YOUR_TURN;
+        if (cell < 0 || cell >= board.getWidth() * board.getHeight())
+            return MoveStatus.INVALID_ACTION;
+        int xPos = cell % board.getWidth();
+        int yPos = cell / board.getWidth();
+        if (!board.isFree(xPos, yPos))
+            return MoveStatus.CELL_OCCUPIED;
+        try {
+            board.occupy(xPos, yPos, playerIndex == 0);
+        } catch (ModelAccessException e) {
+            return MoveStatus.CELL_OCCUPIED;
+        }
+        recordMove(cell, playerIndex);
+        currentPlayer = 1 - playerIndex;
+        if (board.isFull() || board.isThreeInALine())
+            finished = true;
+        return MoveStatus.APPLIED;
+    }
+
+    /**
+     * Resolves the index of a player within this game.
+     *
+     * @param name as the name of the player to look up.
+     * @return 0 for the first player, 1 for the second player, -1 if no such player participates.
+     */
+    public int getPlayerIndex(String name) {
+        if (players[0].getName().equals(name))
+            return 0;
+        if (players[1].getName().equals(name))
+            return 1;
+        return -1;
     }
 
     @Override
@@ -43,9 +289,15 @@ public class XoxGame implements XoxGameReadOnly {
         return null;
     }
 
+    /**
+     * Retrieves an immutable snapshot of the current board. Snapshots are shared, obtaining one does not copy the
+     * board.
+     *
+     * @return the current board state.
+     */
     @Override
-    public Board getBoard() {
-        return board;
+    public BoardSnapshot getBoard() {
+        return isPacked() ? PackedGameState.snapshot(state) : board.getSnapshot();
     }
 
     @Override
@@ -62,17 +314,26 @@ public class XoxGame implements XoxGameReadOnly {
     }
 
     public int getCurrentPlayerIndex() {
-        return currentPlayer;
+        return isPacked() ? PackedGameState.currentPlayer(state) : currentPlayer;
     }
 
     public String getCurrentPlayerName() {
-        return players[currentPlayer].getName();
+        return players[getCurrentPlayerIndex()].getName();
     }
 
     public void setCurrentPlayer(int nextCurrentPlayer) throws ModelAccessException {
         if (nextCurrentPlayer != 0 && nextCurrentPlayer != 1)
             throw new ModelAccessException("Current player can not be set to a value other than 0 or 1.");
-        currentPlayer = nextCurrentPlayer;
+        if (!isPacked()) {
+            synchronized (this) {
+                currentPlayer = nextCurrentPlayer;
+            }
+            return;
+        }
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, PackedGameState.withCurrentPlayer(current, nextCurrentPlayer)));
     }
 
     /**
@@ -83,6 +344,6 @@ public class XoxGame implements XoxGameReadOnly {
      * @return true if the provided player matches the creator of this game. False otherwise.
      */
     public boolean isFirstPlayer(Player player) {
-        return getPlayers()[0].equals(player);
+        return players[0].equals(player);
     }
 }
@@ -16,6 +16,14 @@ public class XoxInitSettings {
     // Creator of the game. Typically the first player.
     String creator;
 
+    // Board dimensions and amount of cells in a line required to win. Defaults to classic 3x3 Xox.
+    int width = 3;
+    int height = 3;
+    int lineLength = 3;
+
+    // Names of the players whose moves are chosen by the server. Empty for games between humans.
+    LinkedList<String> bots = new LinkedList<>();
+
     /**
      * Default constructor.
      */
@@ -70,4 +78,102 @@ public class XoxInitSettings {
     public void setCreator(String creator) {
         this.creator = creator;
     }
+
+    /**
+     * Getter for the width field.
+     *
+     * @return amount of columns of the board.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Setter for the width field.
+     *
+     * @param width as the amount of columns of the board. Range: [1-19]
+     */
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Getter for the height field.
+     *
+     * @return amount of rows of the board.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Setter for the height field.
+     *
+     * @param height as the amount of rows of the board. Range: [1-19]
+     */
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    /**
+     * Getter for the lineLength field.
+     *
+     * @return amount of cells in a line a player must claim to win.
+     */
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    /**
+     * Setter for the lineLength field.
+     *
+     * @param lineLength as the amount of cells in a line a player must claim to win. Must not exceed both width and
+     *                   height.
+     */
+    public void setLineLength(int lineLength) {
+        this.lineLength = lineLength;
+    }
+
+    /**
+     * Getter for the bots field.
+     *
+     * @return names of the players whose moves are chosen by the server.
+     */
+    public LinkedList<String> getBots() {
+        return bots;
+    }
+
+    /**
+     * Setter for the bots field.
+     *
+     * @param bots as the names of the players whose moves are chosen by the server. Each must match the name field of
+     *             one of the player objects in the players list.
+     */
+    public void setBots(LinkedList<String> bots) {
+        this.bots = bots;
+    }
+
+    /**
+     * Checks whether a game can be built from these settings: two distinct players, a creator and bots among them, and
+     * valid board dimensions.
+     *
+     * @return a description of the first invalid setting, or null if all are valid.
+     */
+    public String findError() {
+        if (players == null || players.size() != 2 || players.getFirst() == null || players.getLast() == null)
+            return "Exactly two players are required.";
+        String first = players.getFirst().getName();
+        String second = players.getLast().getName();
+        if (first == null || second == null || first.equals(second))
+            return "Players must have distinct names.";
+        if (creator == null || !(creator.equals(first) || creator.equals(second)))
+            return "Creator must be one of the players.";
+        if (bots != null) {
+            for (String bot : bots) {
+                if (bot == null || !(bot.equals(first) || bot.equals(second)))
+                    return "Bots must be players of the game.";
+            }
+        }
+        return Board.checkDimensions(width, height, lineLength);
+    }
 }
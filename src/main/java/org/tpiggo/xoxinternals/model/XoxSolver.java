@@ -0,0 +1,151 @@
+package org.tpiggo.xoxinternals.model;
+
+/**
+ * Chooses moves for server controlled players. Classic 3x3 games are played perfectly: the best move is read from the
+ * precomputed PositionTable, a single lookup that allocates nothing. The table is generated with the negamax search
+ * of this class, which memoizes solved positions in a transposition table keyed by the canonical form of the
+ * position, the smallest of its eight rotations and reflections.
+ * <p>
+ * Larger boards can not be solved. There, the cell that extends the longest own line is chosen, unless the opponent
+ * could complete a line first, in which case that cell is blocked. Ties go to the cell closest to the board center.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public final class XoxSolver {
+
+    private XoxSolver() {
+    }
+
+    /**
+     * Chooses the next move of the current player of a game.
+     *
+     * @return the cell to claim, y * width + x, or -1 if the game is over.
+     */
+    public static int chooseCell(XoxGame game) {
+        if (!game.isPacked()) {
+            synchronized (game) {
+                if (game.isFinished())
+                    return -1;
+                return chooseCell(game.board, game.getCurrentPlayerIndex() == 0);
+            }
+        }
+        long state = game.packedState();
+        if (PackedGameState.isFinished(state))
+            return -1;
+
+        // Best moves are those with the best negamax score: the fastest win, else a draw, else the slowest loss.
+        int bestMoves = PositionTable.getBestMoves(PositionTable.getInstance().lookup(state));
+        return bestMoves == 0 ? -1 : Integer.numberOfTrailingZeros(bestMoves);
+    }
+
+    /**
+     * Solves a position by negamax. Used to generate the PositionTable, not at runtime.
+     *
+     * @return the score of a position for the player to move. Positive if the player wins with perfect play, the
+     * higher the sooner. Negative if the player loses, 0 for a draw.
+     */
+    static int negamax(int mover, int opponent) {
+        return Search.negamax(mover, opponent);
+    }
+
+    /**
+     * Heuristic play on a board of any size. Must be called while holding the game's monitor.
+     */
+    private static int chooseCell(Board board, boolean firstPlayer) {
+        int lineLength = board.getLineLength();
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int bestCell = -1;
+        long bestScore = Long.MIN_VALUE;
+        for (int cell = 0; cell < width * height; cell++) {
+            int x = cell % width;
+            int y = cell / width;
+            if (!board.isFree(x, y))
+                continue;
+            int attack = board.longestLineThrough(x, y, firstPlayer);
+            int defense = board.longestLineThrough(x, y, !firstPlayer);
+            long score;
+            if (attack >= lineLength)
+                score = 3;
+            else if (defense >= lineLength)
+                score = 2;
+            else
+                score = 0;
+
+            // Priority first, then line lengths, then closeness to the center (doubled to stay integral).
+            int distance = Math.abs(2 * x - (width - 1)) + Math.abs(2 * y - (height - 1));
+            score = (score << 40) | ((long) (2 * attack + defense) << 20) | (0xFFFFF - distance);
+            if (score > bestScore) {
+                bestScore = score;
+                bestCell = cell;
+            }
+        }
+        return bestCell;
+    }
+
+    /**
+     * Negamax search with its transposition table. Held in a separate class, so the table is only allocated when
+     * positions are actually solved.
+     */
+    private static final class Search {
+
+        private static final int CELLS = PackedGameState.CELLS;
+
+        // Per symmetry of the square, the cell each cell maps to.
+        private static final int[][] SYMMETRIES = {
+                {0, 1, 2, 3, 4, 5, 6, 7, 8}, {2, 5, 8, 1, 4, 7, 0, 3, 6},
+                {8, 7, 6, 5, 4, 3, 2, 1, 0}, {6, 3, 0, 7, 4, 1, 8, 5, 2},
+                {2, 1, 0, 5, 4, 3, 8, 7, 6}, {0, 3, 6, 1, 4, 7, 2, 5, 8},
+                {6, 7, 8, 3, 4, 5, 0, 1, 2}, {8, 5, 2, 7, 4, 1, 6, 3, 0}
+        };
+
+        // Per symmetry and 9-bit cell mask, the mapped mask.
+        private static final short[][] MAPPED_MASKS = new short[SYMMETRIES.length][1 << CELLS];
+
+        // Transposition table. Indexed by the canonical key, mover cells | opponent cells << 9. Holds the negamax score
+        // plus SCORE_OFFSET, 0 for positions not solved.
+        private static final byte[] SCORES = new byte[1 << (2 * CELLS)];
+        private static final int SCORE_OFFSET = 16;
+
+        static {
+            for (int symmetry = 0; symmetry < SYMMETRIES.length; symmetry++) {
+                for (int mask = 0; mask < 1 << CELLS; mask++) {
+                    int mapped = 0;
+                    for (int cell = 0; cell < CELLS; cell++)
+                        if ((mask & (1 << cell)) != 0)
+                            mapped |= 1 << SYMMETRIES[symmetry][cell];
+                    MAPPED_MASKS[symmetry][mask] = (short) mapped;
+                }
+            }
+        }
+
+        static int negamax(int mover, int opponent) {
+            int free = ~(mover | opponent) & PackedGameState.FULL_MASK;
+
+            // The opponent made the last move, only they can have completed a line.
+            if (PackedGameState.containsLine(opponent))
+                return -(1 + Integer.bitCount(free));
+            if (free == 0)
+                return 0;
+
+            int key = canonicalKey(mover, opponent);
+            if (SCORES[key] != 0)
+                return SCORES[key] - SCORE_OFFSET;
+            int best = Integer.MIN_VALUE;
+            while (free != 0) {
+                int cell = Integer.numberOfTrailingZeros(free);
+                free &= free - 1;
+                best = Math.max(best, -negamax(opponent, mover | (1 << cell)));
+            }
+            SCORES[key] = (byte) (best + SCORE_OFFSET);
+            return best;
+        }
+
+        private static int canonicalKey(int mover, int opponent) {
+            int key = Integer.MAX_VALUE;
+            for (short[] mapped : MAPPED_MASKS)
+                key = Math.min(key, mapped[mover] | (mapped[opponent] << CELLS));
+            return key;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.tpiggo.xoxinternals.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for building the actions offered to a player, see XoxActionGenerator.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Name("org.tpiggo.xox.ActionGeneration")
+@Label("Action Generation")
+@Category("Xox")
+@Description("Actions offered to a player were built.")
+@StackTrace(false)
+@Threshold("20 us")
+final class ActionGenerationEvent extends Event {
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("Player")
+    String player;
+
+    @Label("Offered Actions")
+    int actions;
+
+    @Label("Outcome")
+    @Description("OFFERED, or UNKNOWN_PLAYER if the player does not participate.")
+    String outcome;
+}
@@ -13,12 +13,12 @@ import java.util.Map;
 public interface ActionGenerator {
 
     /**
-     * Generates a map of actions, where each object is indexed by the MD5 hash of its json string representation.
+     * Generates a map of actions, where each object is indexed by a stable identifier.
      *
      * @param game   as the game instance to analyze
      * @param player as the player for who the action bundle must be created
-     * @return a map where every entry key is the MD5 of the JSON string representation for the associated value
-     * (action)
+     * @return a map where every entry key is a stable identifier of the associated value (action), derived from the
+     * position the action refers to
      * @throws LogicException in case the provided game type is not supported
      */
     Map<String, XoxClaimFieldAction> generateActions(XoxGameReadOnly game, Player player) throws LogicException;
@@ -0,0 +1,445 @@
+package org.tpiggo.xoxinternals.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.tpiggo.xoxinternals.model.BoardSnapshot;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes board updates to the subscribers of a game whenever a move is applied, so clients need not poll the board.
+ * <p>
+ * The thread applying a move never writes to a subscriber. It only signals the channel of the game, which costs a
+ * lookup in a registry keyed by primitive game ids if nobody subscribed and one atomic increment otherwise. Signalled
+ * channels are queued for a small pool of dispatcher threads, which read the latest board snapshot, encode it as JSON
+ * once and place it in the mailbox of every subscriber of the game. A channel is dispatched by one thread at a time,
+ * and signals that arrive meanwhile are coalesced into a single further push of the then latest snapshot.
+ * <p>
+ * Dispatchers never write to a connection. Each subscriber has a mailbox of a single slot, a newer update replaces one
+ * not written yet, and a writer thread drains it. Writes of different subscribers never wait for each other, and a
+ * subscriber is written by one thread at a time. Subscribers thus receive versions in increasing order and always end
+ * up with the final state, but may skip intermediate boards. Idle subscribers cost no thread at all. A subscriber is
+ * dropped once a write takes longer than the write timeout: when the write returns, or as soon as another update
+ * arrives for it meanwhile. A client that stopped reading then only holds its own writer thread, until the container
+ * gives up on the connection.
+ * <p>
+ * Enabled unless the property xox.push.enabled=false. The amount of dispatcher threads is set with xox.push.threads
+ * and defaults to one per available core, the write timeout is set with xox.push.write-timeout-ms.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@ConditionalOnProperty(name = "xox.push.enabled", havingValue = "true", matchIfMissing = true)
+public class BoardFeed implements GameEventListener {
+
+    private final XoxManagerImpl manager;
+    private final ObjectMapper mapper;
+    private final long writeTimeoutNanos;
+    private final Thread[] dispatchers;
+
+    // Drains the mailboxes of subscribers. Grows with the amount of concurrent writes, blocked writes included.
+    private final ThreadPoolExecutor writers;
+
+    // Channels of all games with at least one subscriber.
+    private final GameRegistry<Channel> channels = new GameRegistry<>();
+
+    // Signalled channels, waiting for a dispatcher. A channel is queued at most once.
+    private final LinkedBlockingQueue<Channel> pending = new LinkedBlockingQueue<>();
+
+    private final LongAdder pushes = new LongAdder();
+    private final LongAdder slowDrops = new LongAdder();
+    private volatile boolean running;
+
+    /**
+     * @param manager            as the manager whose games are published.
+     * @param mapper             as the mapper encoding updates, the same one that renders REST responses.
+     * @param dispatcherCount    as the amount of threads encoding updates. Values below 1 select one per available
+     *                           core.
+     * @param writeTimeoutMillis as the longest a single write may take before its subscriber is dropped.
+     */
+    public BoardFeed(XoxManagerImpl manager, ObjectMapper mapper, @Value("${xox.push.threads:0}") int dispatcherCount,
+                     @Value("${xox.push.write-timeout-ms:1000}") long writeTimeoutMillis) {
+        this.manager = manager;
+        this.mapper = mapper;
+        writeTimeoutNanos = writeTimeoutMillis * 1000000;
+        if (dispatcherCount < 1)
+            dispatcherCount = Runtime.getRuntime().availableProcessors();
+        dispatchers = new Thread[dispatcherCount];
+        writers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger created = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "xox-push-writer-" + created.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < dispatchers.length; i++) {
+            dispatchers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            }, "xox-push-" + i);
+            dispatchers[i].setDaemon(true);
+            dispatchers[i].start();
+        }
+        manager.addEventListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        manager.removeEventListener(this);
+        running = false;
+        for (Thread dispatcher : dispatchers) {
+            if (dispatcher != null)
+                dispatcher.interrupt();
+        }
+        writers.shutdownNow();
+        for (long gameId : channels.ids())
+            closeChannel(gameId);
+    }
+
+    /**
+     * Registers a subscriber for the updates of a game. The current state is pushed right away, by a dispatcher.
+     *
+     * @return false if there is no such game, in which case nothing was registered.
+     */
+    public boolean subscribe(long gameId, BoardSubscriber subscriber) {
+        if (manager.getSessions().get(gameId) == null)
+            return false;
+        Subscription subscription = new Subscription(gameId, subscriber);
+        while (true) {
+            Channel channel = channels.get(gameId);
+            if (channel == null) {
+                Channel created = new Channel(gameId);
+                channel = channels.putIfAbsent(gameId, created);
+                if (channel == null)
+                    channel = created;
+            }
+            channel.subscriptions.add(subscription);
+
+            // The channel may have been dropped by a concurrent unsubscribe of its last subscriber. Retry on the new one.
+            if (channels.get(gameId) == channel) {
+                signal(channel);
+                break;
+            }
+            channel.subscriptions.remove(subscription);
+        }
+
+        // The game may have been removed before the channel was in place, in which case no removal closes it.
+        if (manager.getSessions().get(gameId) == null)
+            closeChannel(gameId);
+        return true;
+    }
+
+    /**
+     * Unregisters a subscriber. Does nothing if it is not subscribed.
+     */
+    public void unsubscribe(long gameId, BoardSubscriber subscriber) {
+        Channel channel = channels.get(gameId);
+        if (channel == null)
+            return;
+        for (Subscription subscription : channel.subscriptions) {
+            if (subscription.subscriber == subscriber)
+                channel.subscriptions.remove(subscription);
+        }
+        if (channel.subscriptions.isEmpty())
+            channels.remove(gameId, channel);
+    }
+
+    /**
+     * Reads the current state of a game.
+     *
+     * @return the state, or null if there is no such game.
+     */
+    public BoardUpdate getUpdate(long gameId) {
+        GameSession session = manager.getSessions().get(gameId);
+        if (session == null)
+            return null;
+        XoxGame game = session.game;
+        BoardSnapshot board = game.getBoard();
+
+        // Derive turn and end from the snapshot alone, so they match the board. Players alternate, the first player
+        // opens.
+        boolean finished = board.isFull() || board.isThreeInALine();
+        String currentPlayer = finished ? null : game.getPlayerInfo(board.getVersion() % 2).getName();
+        return new BoardUpdate(gameId, board.getVersion(), board, currentPlayer, finished);
+    }
+
+    /**
+     * @return the amount of registered subscribers, over all games.
+     */
+    public int getSubscriberCount() {
+        final int[] count = new int[1];
+        channels.forEach(new GameRegistry.Visitor<Channel>() {
+            @Override
+            public void visit(long gameId, Channel channel) {
+                count[0] += channel.subscriptions.size();
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * @return the amount of updates delivered so far.
+     */
+    public long getPushCount() {
+        return pushes.sum();
+    }
+
+    /**
+     * @return the amount of subscribers dropped because a write exceeded the write timeout, including writes that
+     * never returned.
+     */
+    public long getSlowDropCount() {
+        return slowDrops.sum();
+    }
+
+    @Override
+    public void onGameCreated(long gameId, XoxGame game) {
+    }
+
+    @Override
+    public void onMoveApplied(long gameId, int cell, int playerIndex) {
+        Channel channel = channels.get(gameId);
+        if (channel != null)
+            signal(channel);
+    }
+
+    @Override
+    public void onGameFinished(long gameId, Ranking ranking) {
+        // The update of the final move already tells the game is over.
+    }
+
+    @Override
+    public void onGameRemoved(long gameId) {
+        closeChannel(gameId);
+    }
+
+    /**
+     * Queues a channel for dispatch, unless it is already queued or being dispatched.
+     */
+    private void signal(Channel channel) {
+        if (channel.signals.getAndIncrement() == 0)
+            pending.offer(channel);
+    }
+
+    private void closeChannel(long gameId) {
+        Channel channel = channels.remove(gameId);
+        if (channel == null)
+            return;
+        for (Subscription subscription : channel.subscriptions)
+            subscription.subscriber.close();
+    }
+
+    /**
+     * Dispatcher loop. Pushes the latest state of queued channels until the feed shuts down.
+     */
+    private void dispatch() {
+        while (running) {
+            Channel channel;
+            try {
+                channel = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            // Push until no signal arrived during the push. Only then the channel may be queued again, so no other
+            // dispatcher works on it meanwhile.
+            int signals = channel.signals.get();
+            while (true) {
+                push(channel);
+                if (channel.signals.compareAndSet(signals, 0))
+                    break;
+                signals = channel.signals.get();
+            }
+        }
+    }
+
+    /**
+     * Places the latest state of a game in the mailboxes of its subscribers and schedules the writes.
+     */
+    private void push(Channel channel) {
+        BoardUpdate update = getUpdate(channel.gameId);
+        if (update == null)
+            return;
+        Delivery delivery = null;
+        for (Subscription subscription : channel.subscriptions) {
+
+            // Subscribers that joined after a push receive the current state even if it did not change since.
+            if (update.getVersion() <= subscription.queuedVersion)
+                continue;
+
+            // A write still running past the deadline will not take the update in time.
+            long writeStart = subscription.writeStartNanos;
+            if (writeStart != 0 && System.nanoTime() - writeStart > writeTimeoutNanos) {
+                drop(subscription, true);
+                continue;
+            }
+
+            // Encoded once per push, for the first subscriber that needs it.
+            if (delivery == null) {
+                try {
+                    delivery = new Delivery(update, mapper.writeValueAsString(update));
+                } catch (JsonProcessingException e) {
+
+                    // Error handling ignored for case study simplicity.
+                    return;
+                }
+            }
+            subscription.queuedVersion = update.getVersion();
+            subscription.mailbox.set(delivery);
+            if (subscription.writing.compareAndSet(false, true))
+                scheduleWrite(subscription);
+        }
+    }
+
+    private void scheduleWrite(final Subscription subscription) {
+        try {
+            writers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(subscription);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+
+            // The feed shuts down and closes all subscribers.
+        }
+    }
+
+    /**
+     * Writes the mailbox of a subscriber until it is empty. Runs on one writer thread at a time per subscriber.
+     */
+    private void write(Subscription subscription) {
+        while (true) {
+            Delivery delivery = subscription.mailbox.getAndSet(null);
+            if (delivery == null) {
+
+                // Stop writing, unless an update arrived before the flag was cleared and nobody else took over.
+                subscription.writing.set(false);
+                if (subscription.mailbox.get() == null || !subscription.writing.compareAndSet(false, true))
+                    return;
+                continue;
+            }
+            if (subscription.dropped)
+                return;
+
+            long start = System.nanoTime();
+            subscription.writeStartNanos = start;
+            boolean delivered;
+            try {
+                delivered = subscription.subscriber.push(delivery.update, delivery.json);
+            } catch (RuntimeException e) {
+
+                // A failing subscriber is dropped, like one that rejects the update.
+                delivered = false;
+            }
+            subscription.writeStartNanos = 0;
+            if (!delivered) {
+                drop(subscription, false);
+                return;
+            }
+            pushes.increment();
+            if (System.nanoTime() - start > writeTimeoutNanos) {
+                drop(subscription, true);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unregisters and closes a subscriber, once.
+     *
+     * @param slow as true if the subscriber is dropped because a write exceeded the write timeout.
+     */
+    private void drop(Subscription subscription, boolean slow) {
+        if (subscription.dropped)
+            return;
+        subscription.dropped = true;
+        if (slow)
+            slowDrops.increment();
+        unsubscribe(subscription.gameId, subscription.subscriber);
+        subscription.subscriber.close();
+    }
+
+    /**
+     * Subscribers of a single game.
+     */
+    private static final class Channel {
+        final long gameId;
+        final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        // Signals since the channel was last queued. Non zero while the channel is queued or dispatched.
+        final AtomicInteger signals = new AtomicInteger();
+
+        Channel(long gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    /**
+     * A subscriber with its mailbox and the state of its writes.
+     */
+    private static final class Subscription {
+        final long gameId;
+        final BoardSubscriber subscriber;
+
+        // Next update to write. A newer update replaces one not written yet.
+        final AtomicReference<Delivery> mailbox = new AtomicReference<>();
+
+        // True while a writer drains the mailbox.
+        final AtomicBoolean writing = new AtomicBoolean();
+
+        // Start of the running write, 0 if none is running.
+        volatile long writeStartNanos;
+
+        // Set once the subscriber was dropped. Checked by dispatchers and writers, so it is closed only once.
+        volatile boolean dropped;
+
+        // Version last placed in the mailbox. Only accessed by the dispatcher of the channel.
+        int queuedVersion = -1;
+
+        Subscription(long gameId, BoardSubscriber subscriber) {
+            this.gameId = gameId;
+            this.subscriber = subscriber;
+        }
+    }
+
+    /**
+     * An update along with its JSON encoding, shared by all mailboxes of a push.
+     */
+    private static final class Delivery {
+        final BoardUpdate update;
+        final String json;
+
+        Delivery(BoardUpdate update, String json) {
+            this.update = update;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.tpiggo.xoxinternals.service;
+
+/**
+ * Receiver of the board updates of a game, see BoardFeed.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public interface BoardSubscriber {
+
+    /**
+     * Delivers an update. Called by one thread at a time per subscriber, with increasing versions. May block, but a
+     * subscriber whose push takes longer than the write timeout of the feed is dropped.
+     *
+     * @param update as the update.
+     * @param json   as the update encoded as JSON, shared by all subscribers of the game.
+     * @return false if the subscriber can no longer receive updates and should be dropped.
+     */
+    boolean push(BoardUpdate update, String json);
+
+    /**
+     * Ends the subscription, because the game was removed or the feed shuts down.
+     */
+    void close();
+}
@@ -0,0 +1,53 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.BoardReadOnly;
+
+/**
+ * State of a game pushed to board subscribers: the board, whose turn it is and whether the game is over. All fields
+ * are derived from a single board snapshot, so they are always consistent with each other.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class BoardUpdate {
+
+    private final long gameId;
+    private final int version;
+    private final BoardReadOnly board;
+    private final String currentPlayer;
+    private final boolean finished;
+
+    public BoardUpdate(long gameId, int version, BoardReadOnly board, String currentPlayer, boolean finished) {
+        this.gameId = gameId;
+        this.version = version;
+        this.board = board;
+        this.currentPlayer = currentPlayer;
+        this.finished = finished;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * @return the amount of moves played on the board. Increases with every move, so clients can discard stale
+     * updates.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public BoardReadOnly getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the name of the player on turn, or null if the game is over.
+     */
+    public String getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,31 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+/**
+ * Chooses moves for server controlled players on boards that are too large for XoxSolver to play perfectly. Choosing a
+ * move may take long, so it never happens on the thread that applied the preceding move.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public interface BotStrategy {
+
+    /**
+     * Requests the next move of the current player of a game and returns right away. The game may change
+     * concurrently, the manager discards the move if it no longer applies.
+     *
+     * @param callback as the receiver of the chosen cell, called once from a thread of the strategy.
+     */
+    void requestCell(XoxGame game, CellCallback callback);
+
+    /**
+     * Receives a cell chosen by a strategy.
+     */
+    interface CellCallback {
+
+        /**
+         * @param cell as the cell to claim, y * width + x, or -1 if the game is over.
+         */
+        void onCellChosen(int cell);
+    }
+}
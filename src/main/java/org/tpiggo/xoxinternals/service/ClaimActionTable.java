@@ -0,0 +1,70 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Preallocated claim-field actions of a single game, one per player and cell. Actions are immutable, so each one is
+ * created on first use and then handed out for the rest of the game. The table also remembers the last action array
+ * offered to each player, so repeated requests for an unchanged board return the same array.
+ *
+ * @author Maximilian Schiedermeier
+ */
+final class ClaimActionTable {
+
+    private final XoxGame game;
+    private final int width;
+
+    // Actions indexed [player][cell]. Created lazily, racing threads create equal actions.
+    private final XoxClaimFieldAction[][] actions;
+
+    // Last offered action array per player, along with the board version it was built for.
+    private final AtomicReferenceArray<Offer> offers = new AtomicReferenceArray<>(2);
+
+    ClaimActionTable(XoxGame game) {
+        this.game = game;
+        this.width = game.getBoard().getWidth();
+        int cellCount = width * game.getBoard().getHeight();
+        actions = new XoxClaimFieldAction[][]{new XoxClaimFieldAction[cellCount], new XoxClaimFieldAction[cellCount]};
+    }
+
+    /**
+     * Resolves the action that claims a cell for a player.
+     *
+     * @param playerIndex as the index of the claiming player. Range: [0-1]
+     * @param cell        as the cell index, y * width + x.
+     */
+    XoxClaimFieldAction get(int playerIndex, int cell) throws LogicException {
+        XoxClaimFieldAction action = actions[playerIndex][cell];
+        if (action == null) {
+            Player player = game.getPlayerInfo(playerIndex);
+            action = new XoxClaimFieldAction(cell % width, cell / width, player);
+            actions[playerIndex][cell] = action;
+        }
+        return action;
+    }
+
+    /**
+     * @return the actions last offered to a player, if they were built for the provided board version. Null otherwise.
+     */
+    XoxClaimFieldAction[] getOffered(int playerIndex, int boardVersion) {
+        Offer offer = offers.get(playerIndex);
+        return (offer != null && offer.boardVersion == boardVersion) ? offer.actions : null;
+    }
+
+    void setOffered(int playerIndex, int boardVersion, XoxClaimFieldAction[] offered) {
+        offers.set(playerIndex, new Offer(boardVersion, offered));
+    }
+
+    private static final class Offer {
+        final int boardVersion;
+        final XoxClaimFieldAction[] actions;
+
+        Offer(int boardVersion, XoxClaimFieldAction[] actions) {
+            this.boardVersion = boardVersion;
+            this.actions = actions;
+        }
+    }
+}
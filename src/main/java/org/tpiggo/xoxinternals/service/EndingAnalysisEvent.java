@@ -0,0 +1,32 @@
+package org.tpiggo.xoxinternals.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for the analysis of a game that just ended: the final ranking is computed and the end is
+ * reported to the game event listeners. Ends are detected by the claim itself, so this replaces the separate
+ * XoxEndingAnalyzer pass on the request path.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Name("org.tpiggo.xox.EndingAnalysis")
+@Label("Ending Analysis")
+@Category("Xox")
+@Description("A finished game was ranked and its end reported.")
+@StackTrace(false)
+@Threshold("20 us")
+final class EndingAnalysisEvent extends Event {
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("Outcome")
+    @Description("WON_BY_FIRST, WON_BY_SECOND or DRAW, or FAILED if no ranking could be computed.")
+    String outcome;
+}
@@ -0,0 +1,159 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+/**
+ * Emits the flight recorder events of the Xox manager. The manager only links this holder, never the event classes,
+ * which extend jdk.jfr.Event: on a Java 8 runtime without jdk.jfr (older than 8u262) the events are skipped, instead
+ * of failing to load the manager. Started events are handed out as plain objects, null if jdk.jfr is not present.
+ *
+ * @author Maximilian Schiedermeier
+ */
+final class FlightRecorderEvents {
+
+    /**
+     * Tells whether the runtime provides jdk.jfr. The event classes are only touched if true.
+     */
+    static final boolean AVAILABLE = isFlightRecorderPresent();
+
+    private FlightRecorderEvents() {
+    }
+
+    private static boolean isFlightRecorderPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts timing an access to the game registry.
+     */
+    static Object beginRegistryAccess() {
+        if (!AVAILABLE)
+            return null;
+        RegistryEvent event = new RegistryEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a registry access and commits it if it passes the recording settings.
+     *
+     * @param started as the object returned by beginRegistryAccess.
+     */
+    static void commitRegistryAccess(Object started, long gameId, String operation, String outcome) {
+        if (started == null)
+            return;
+        RegistryEvent event = (RegistryEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameId = gameId;
+            event.operation = operation;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts timing the generation of the actions of a player.
+     */
+    static Object beginActionGeneration() {
+        if (!AVAILABLE)
+            return null;
+        ActionGenerationEvent event = new ActionGenerationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an action generation and commits it if it passes the recording settings.
+     *
+     * @param started as the object returned by beginActionGeneration.
+     */
+    static void commitActionGeneration(Object started, long gameId, XoxGame game, String player, int actions) {
+        if (started == null)
+            return;
+        ActionGenerationEvent event = (ActionGenerationEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameId = gameId;
+            event.player = player;
+            event.actions = actions;
+            event.outcome = game.getPlayerIndex(player) < 0 ? "UNKNOWN_PLAYER" : "OFFERED";
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts timing the validation and application of a move.
+     */
+    static Object beginMove() {
+        if (!AVAILABLE)
+            return null;
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a move and commits it if it passes the recording settings.
+     *
+     * @param started as the object returned by beginMove.
+     * @param status  as the MoveStatus code of the claim.
+     */
+    static void commitMove(Object started, long gameId, XoxGame game, int playerIndex, int cell, int status) {
+        if (started == null)
+            return;
+        MoveEvent event = (MoveEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameId = gameId;
+            event.playerIndex = playerIndex;
+            event.cell = cell;
+            event.bot = game.isBot(playerIndex);
+            event.outcome = MoveStatus.nameOf(status);
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts timing the analysis of a game that just ended.
+     */
+    static Object beginEndingAnalysis() {
+        if (!AVAILABLE)
+            return null;
+        EndingAnalysisEvent event = new EndingAnalysisEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an ending analysis and commits it if it passes the recording settings.
+     *
+     * @param started as the object returned by beginEndingAnalysis.
+     * @param ranking as the final ranking, or null if it could not be computed.
+     */
+    static void commitEndingAnalysis(Object started, long gameId, XoxGame game, Ranking ranking) {
+        if (started == null)
+            return;
+        EndingAnalysisEvent event = (EndingAnalysisEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameId = gameId;
+            event.outcome = outcomeOf(game, ranking);
+            event.commit();
+        }
+    }
+
+    private static String outcomeOf(XoxGame game, Ranking ranking) {
+        if (ranking == null)
+            return "FAILED";
+        if (ranking.getScoresDescending()[0] == 0)
+            return "DRAW";
+        return game.isFirstPlayer(ranking.getPlayersDescending()[0]) ? "WON_BY_FIRST" : "WON_BY_SECOND";
+    }
+}
@@ -0,0 +1,25 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+/**
+ * Storage tier for games evicted from memory. If a bean implementing this interface is present, the evictor hands it
+ * every game before dropping it from the registry, so an evicted game is always held by either. Called from the
+ * evictor thread, or in sharded execution mode from the shard owning the game, where a blocking call delays all games of
+ * the shard. Implementations should not block for long.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public interface GameArchive {
+
+    /**
+     * Stores a game about to be evicted. If this throws, the game is not evicted. Eviction may still fail afterwards,
+     * if the game is removed or replaced concurrently, and the game may be stored again by a later eviction, so
+     * implementations must let a later call for the same id replace an earlier one. In sharded execution mode no move
+     * is applied between storing and removal.
+     *
+     * @param gameId as the id the game was registered with.
+     * @param game   as the game to store. Not modified by the manager once it was evicted.
+     */
+    void archive(long gameId, XoxGame game);
+}
@@ -0,0 +1,45 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+/**
+ * Callback for all state changes of the games held by the Xox manager. Notifications are issued after the change was
+ * applied, on the thread that applied it. Notifications of different games may arrive concurrently, and so may two
+ * notifications of the same game if it is modified by concurrent requests.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public interface GameEventListener {
+
+    /**
+     * A game was registered.
+     *
+     * @param gameId as the id of the new game.
+     * @param game   as the new game, in its initial state.
+     */
+    void onGameCreated(long gameId, XoxGame game);
+
+    /**
+     * A move was applied.
+     *
+     * @param gameId      as the id of the game.
+     * @param cell        as the claimed cell, y * width + x.
+     * @param playerIndex as the index of the player who claimed the cell. Range: [0-1]
+     */
+    void onMoveApplied(long gameId, int cell, int playerIndex);
+
+    /**
+     * A game ended. Issued exactly once per game, after the move that ended it was reported.
+     *
+     * @param gameId  as the id of the game.
+     * @param ranking as the final ranking of the game.
+     */
+    void onGameFinished(long gameId, Ranking ranking);
+
+    /**
+     * A game was removed, either explicitly or by eviction.
+     *
+     * @param gameId as the id of the removed game.
+     */
+    void onGameRemoved(long gameId);
+}
@@ -0,0 +1,245 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enforces a retention policy on the games of the Xox manager. Finished games are dropped after a TTL, abandoned games
+ * after an idle timeout, and if more games than allowed are resident the least recently used ones are evicted.
+ * <p>
+ * The registry is never swept as a whole. A background thread inspects a small window of registry slots per step and
+ * resumes at the next window in the following step, so a full pass is spread over many short steps and writers are
+ * only ever blocked on a single segment for the duration of one window. Capacity eviction is sampled: per step, the
+ * least recently used games of the current window are evicted, at most half of the window, so that recently used
+ * games survive even while the registry is far over capacity.
+ * <p>
+ * Each eviction archives and removes a game as one mutation, run by the game executor of the manager. In sharded
+ * execution mode that is the shard owning the game, so no move is applied between archiving and removal.
+ * <p>
+ * Enabled with the property xox.retention.enabled=true. Evicted games are passed to a GameArchive bean, if present.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@ConditionalOnProperty(name = "xox.retention.enabled", havingValue = "true")
+public class GameEvictor {
+
+    private final XoxManagerImpl manager;
+    private final GameRegistry<GameSession> sessions;
+    private final RetentionPolicy policy;
+    private final int slotsPerStep;
+    private final long stepIntervalMillis;
+    private GameArchive archive;
+    private ScheduledExecutorService scheduler;
+
+    // Eviction counters, per reason.
+    private final LongAdder expiredFinished = new LongAdder();
+    private final LongAdder expiredIdle = new LongAdder();
+    private final LongAdder evictedOverCapacity = new LongAdder();
+
+    // Position of the next step within the current pass. Only accessed by sweep.
+    private long cursor;
+
+    // Games of the current window that did not expire, candidates for capacity eviction. Only accessed by sweep.
+    private final long[] candidateIds;
+    private final GameSession[] candidates;
+    private int candidateCount;
+
+    /**
+     * @param manager            as the manager whose games are evicted.
+     * @param finishedTtlMillis  as the time a finished game is kept. 0 keeps finished games.
+     * @param idleTimeoutMillis  as the time a game is kept without any access. 0 keeps idle games.
+     * @param maxResidentGames   as the maximum amount of resident games. 0 for no limit.
+     * @param slotsPerStep       as the amount of registry slots inspected per step.
+     * @param stepIntervalMillis as the pause between two steps.
+     */
+    public GameEvictor(XoxManagerImpl manager,
+                       @Value("${xox.retention.finished-ttl-ms:600000}") long finishedTtlMillis,
+                       @Value("${xox.retention.idle-timeout-ms:3600000}") long idleTimeoutMillis,
+                       @Value("${xox.retention.max-games:0}") int maxResidentGames,
+                       @Value("${xox.retention.sweep-slots:256}") int slotsPerStep,
+                       @Value("${xox.retention.sweep-interval-ms:100}") long stepIntervalMillis) {
+        if (slotsPerStep < 1 || stepIntervalMillis < 1)
+            throw new RuntimeException("Sweep window and interval must be positive.");
+        this.manager = manager;
+        this.sessions = manager.getSessions();
+        this.policy = new RetentionPolicy(finishedTtlMillis, idleTimeoutMillis, maxResidentGames);
+        this.slotsPerStep = slotsPerStep;
+        this.stepIntervalMillis = stepIntervalMillis;
+        candidateIds = new long[slotsPerStep];
+        candidates = new GameSession[slotsPerStep];
+    }
+
+    /**
+     * Sets the tier evicted games are passed to.
+     */
+    @Autowired(required = false)
+    public void setArchive(GameArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Starts the background thread running the sweep steps.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xox-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweep();
+                } catch (RuntimeException e) {
+
+                    // A failing archive must not stop the sweep. Error handling ignored for case study simplicity.
+                }
+            }
+        }, stepIntervalMillis, stepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null)
+            scheduler.shutdown();
+    }
+
+    /**
+     * Runs a single sweep step over the next window of registry slots.
+     *
+     * @return the amount of evictions completed during this step. In sharded execution mode evictions complete on
+     * the shards owning the games, possibly after the step.
+     */
+    public synchronized int sweep() {
+        final long now = System.currentTimeMillis();
+        long evictedBefore = getEvictedCount();
+        candidateCount = 0;
+
+        cursor = sessions.scan(cursor, slotsPerStep, new GameRegistry.Visitor<GameSession>() {
+            @Override
+            public void visit(long id, GameSession session) {
+                candidateIds[candidateCount] = id;
+                candidates[candidateCount++] = session;
+            }
+        });
+
+        // Expire finished and idle games of the window. Survivors stay candidates for capacity eviction.
+        int survivors = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            GameSession session = candidates[i];
+            if (session.game.isFinished() && session.finishedAtMillis == 0)
+                session.finishedAtMillis = now;
+
+            if (policy.getFinishedTtlMillis() > 0 && session.finishedAtMillis != 0
+                    && now - session.finishedAtMillis >= policy.getFinishedTtlMillis()) {
+                evict(candidateIds[i], session, expiredFinished);
+            } else if (policy.getIdleTimeoutMillis() > 0
+                    && now - session.getLastAccessMillis() >= policy.getIdleTimeoutMillis()) {
+                evict(candidateIds[i], session, expiredIdle);
+            } else {
+                candidateIds[survivors] = candidateIds[i];
+                candidates[survivors++] = session;
+            }
+        }
+
+        // Evict the least recently used survivors while over capacity, at most half of them.
+        if (policy.getMaxResidentGames() > 0) {
+            int excess = Math.min(sessions.size() - policy.getMaxResidentGames(), survivors / 2);
+            for (int round = 0; round < excess; round++) {
+                int oldest = round;
+                for (int i = round + 1; i < survivors; i++) {
+                    if (candidates[i].getLastAccessMillis() < candidates[oldest].getLastAccessMillis())
+                        oldest = i;
+                }
+                swapCandidates(round, oldest);
+                evict(candidateIds[round], candidates[round], evictedOverCapacity);
+            }
+        }
+
+        // Drop references, so evicted games can be collected right away.
+        for (int i = 0; i < candidateCount; i++)
+            candidates[i] = null;
+        return (int) (getEvictedCount() - evictedBefore);
+    }
+
+    /**
+     * Archives a game and removes it from the registry, as a mutation run by the game executor of the manager. Skipped
+     * if the game was replaced or removed meanwhile. A game the archive fails to store stays resident, so the next
+     * sweep retries it.
+     */
+    private void evict(final long gameId, final GameSession session, final LongAdder counter) {
+        manager.execute(gameId, new Runnable() {
+            @Override
+            public void run() {
+                if (sessions.get(gameId) != session)
+                    return;
+                if (archive != null) {
+                    try {
+                        archive.archive(gameId, session.game);
+                    } catch (RuntimeException e) {
+                        return;
+                    }
+                }
+                if (manager.removeSession(gameId, session))
+                    counter.increment();
+            }
+        });
+    }
+
+    private long getEvictedCount() {
+        return expiredFinished.sum() + expiredIdle.sum() + evictedOverCapacity.sum();
+    }
+
+    private void swapCandidates(int first, int second) {
+        long id = candidateIds[first];
+        candidateIds[first] = candidateIds[second];
+        candidateIds[second] = id;
+        GameSession session = candidates[first];
+        candidates[first] = candidates[second];
+        candidates[second] = session;
+    }
+
+    /**
+     * @return the amount of finished games evicted after their TTL.
+     */
+    public long getExpiredFinishedCount() {
+        return expiredFinished.sum();
+    }
+
+    /**
+     * @return the amount of games evicted after their idle timeout.
+     */
+    public long getExpiredIdleCount() {
+        return expiredIdle.sum();
+    }
+
+    /**
+     * @return the amount of games evicted because more games than allowed were resident.
+     */
+    public long getEvictedOverCapacityCount() {
+        return evictedOverCapacity.sum();
+    }
+
+    /**
+     * @return the amount of games currently resident in memory.
+     */
+    public int getResidentGameCount() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,16 @@
+package org.tpiggo.xoxinternals.service;
+
+/**
+ * Runs mutations of a game that are not issued by a client request, e.g. moves a bot strategy chose asynchronously or
+ * evictions.
+ * Lets an execution mode keep such mutations on the thread that owns the game.
+ *
+ * @author Maximilian Schiedermeier
+ */
+interface GameExecutor {
+
+    /**
+     * Runs a mutation of a game, possibly after returning.
+     */
+    void execute(long gameId, Runnable mutation);
+}
@@ -0,0 +1,404 @@
+package org.tpiggo.xoxinternals.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent hash table that indexes values by primitive long ids. Ids are spread over a power-of-two amount of
+ * segments, each an open-addressing table with linear probing and its own StampedLock. Lookups probe once without
+ * taking any lock (optimistic read, validated by the segment stamp), writes only lock the segment the id maps to. Ids
+ * are never boxed.
+ *
+ * @param <V> as the type of the indexed values.
+ * @author Maximilian Schiedermeier
+ */
+public class GameRegistry<V> {
+
+    // Initial amount of slots per segment. Must be a power of two.
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+
+    /**
+     * Creates a registry with four segments per available core.
+     */
+    public GameRegistry() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Creates a registry with a custom amount of segments.
+     *
+     * @param concurrencyLevel as the estimated amount of concurrently writing threads. Rounded up to a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public GameRegistry(int concurrencyLevel) {
+        int segmentCount = (concurrencyLevel <= 1 ? 1 : Integer.highestOneBit(concurrencyLevel - 1) << 1);
+        segments = (Segment<V>[]) new Segment<?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+            segments[i] = new Segment<>();
+    }
+
+    /**
+     * Looks up the value stored for an id.
+     *
+     * @return the value, or null if no value is stored for the id.
+     */
+    public V get(long id) {
+        long hash = hash(id);
+        return segmentFor(hash).get(id, hash);
+    }
+
+    /**
+     * Stores a value, unless a value is already stored for the id.
+     *
+     * @return null if the value was stored, the already present value otherwise.
+     */
+    public V putIfAbsent(long id, V value) {
+        long hash = hash(id);
+        return segmentFor(hash).put(id, hash, value, true);
+    }
+
+    /**
+     * Stores a value, replacing any value already stored for the id.
+     *
+     * @return the replaced value, or null if there was none.
+     */
+    public V put(long id, V value) {
+        long hash = hash(id);
+        return segmentFor(hash).put(id, hash, value, false);
+    }
+
+    /**
+     * Removes the value stored for an id.
+     *
+     * @return the removed value, or null if there was none.
+     */
+    public V remove(long id) {
+        long hash = hash(id);
+        return segmentFor(hash).remove(id, hash);
+    }
+
+    /**
+     * Removes the value stored for an id, but only if it is the expected value. Values are compared by identity.
+     *
+     * @return true if the value was removed, false if another value or no value is stored for the id.
+     */
+    public boolean remove(long id, V expected) {
+        long hash = hash(id);
+        return segmentFor(hash).remove(id, hash, expected);
+    }
+
+    /**
+     * Grows the registry ahead of bulk insertions, so it does not resize repeatedly while they proceed.
+     *
+     * @param expectedSize as the total amount of values the registry is expected to hold.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int perSegment = (int) Math.min(1L << 30, (long) expectedSize / segments.length * 4 / 3 + 1);
+        for (Segment<V> segment : segments)
+            segment.ensureCapacity(perSegment);
+    }
+
+    /**
+     * @return the amount of stored values. Not atomic with respect to concurrent writes.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return a copy of all ids currently stored. Each segment is copied atomically, the registry as a whole is not.
+     */
+    public Collection<Long> ids() {
+        final Collection<Long> ids = new ArrayList<>();
+        forEach(new Visitor<V>() {
+            @Override
+            public void visit(long id, V value) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Passes every stored entry to a visitor. Segments are visited one by one, each under its read lock, so writers
+     * are only blocked on the segment currently visited.
+     */
+    public void forEach(Visitor<V> visitor) {
+        for (Segment<V> segment : segments)
+            segment.forEach(visitor);
+    }
+
+    /**
+     * Incremental iteration. Visits the entries of a bounded window of slots, starting at a cursor returned by the
+     * previous call, so that a full pass over a large registry can be spread over many short steps. Only the segment
+     * holding the window is read locked, and only for the duration of the window. Entries inserted, moved or removed
+     * between two steps may be visited twice or not at all during a pass. The visitor must not modify the registry.
+     *
+     * @param cursor   as the position to resume at. 0 starts a new pass.
+     * @param maxSlots as the maximum amount of slots to inspect.
+     * @param visitor  as the callback for every entry within the window.
+     * @return the cursor to resume at, 0 once the pass is complete.
+     */
+    public long scan(long cursor, int maxSlots, Visitor<V> visitor) {
+        int segment = (int) (cursor >>> 32);
+        int slot = (int) cursor;
+        if (segment >= segments.length)
+            return 0;
+        int next = segments[segment].scan(slot, maxSlots, visitor);
+        if (next >= 0)
+            return ((long) segment << 32) | next;
+        return segment + 1 < segments.length ? (long) (segment + 1) << 32 : 0;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> 32) & (segments.length - 1)];
+    }
+
+    /**
+     * Spreads the bits of an id (finalizer of MurmurHash3), so that sequential or random ids map to all segments and
+     * slots evenly. The upper half selects the segment, the lower half the slot.
+     */
+    private static long hash(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Callback for iterations over all entries of the registry.
+     */
+    public interface Visitor<V> {
+        void visit(long id, V value);
+    }
+
+    /**
+     * Slots of a segment. Keys and values live in one object, so a reader always sees arrays of the same length.
+     */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        private int size;
+
+        V get(long id, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            V value = find(table, id, hash);
+            if (lock.validate(stamp))
+                return value;
+
+            // A writer interfered, retry under the read lock.
+            stamp = lock.readLock();
+            try {
+                return find(table, id, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V put(long id, long hash, V value, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int slot = (int) hash & current.mask;
+                while (current.values[slot] != null) {
+                    if (current.keys[slot] == id) {
+                        V previous = cast(current.values[slot]);
+                        if (!onlyIfAbsent)
+                            current.values[slot] = value;
+                        return previous;
+                    }
+                    slot = (slot + 1) & current.mask;
+                }
+                current.keys[slot] = id;
+                current.values[slot] = value;
+                if (++size > (current.mask + 1) * 3 / 4)
+                    table = resize(current);
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V remove(long id, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int slot = (int) hash & current.mask;
+                while (current.values[slot] != null) {
+                    if (current.keys[slot] == id) {
+                        V previous = cast(current.values[slot]);
+                        shiftBack(current, slot);
+                        size--;
+                        return previous;
+                    }
+                    slot = (slot + 1) & current.mask;
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long id, long hash, V expected) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int slot = (int) hash & current.mask;
+                while (current.values[slot] != null) {
+                    if (current.keys[slot] == id) {
+                        if (current.values[slot] != expected)
+                            return false;
+                        shiftBack(current, slot);
+                        size--;
+                        return true;
+                    }
+                    slot = (slot + 1) & current.mask;
+                }
+                return false;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void ensureCapacity(int capacity) {
+            long stamp = lock.writeLock();
+            try {
+                while (table.mask + 1 < capacity)
+                    table = resize(table);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.tryOptimisticRead();
+            int result = size;
+            if (lock.validate(stamp))
+                return result;
+            stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void forEach(Visitor<V> visitor) {
+            long stamp = lock.readLock();
+            try {
+                Table current = table;
+                for (int slot = 0; slot <= current.mask; slot++) {
+                    if (current.values[slot] != null)
+                        visitor.visit(current.keys[slot], cast(current.values[slot]));
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Visits the entries of the slots [from, from + maxSlots).
+         *
+         * @return the slot to resume at, -1 if the end of the table was reached.
+         */
+        int scan(int from, int maxSlots, Visitor<V> visitor) {
+            long stamp = lock.readLock();
+            try {
+                Table current = table;
+                int to = (int) Math.min((long) from + maxSlots, current.mask + 1L);
+                for (int slot = from; slot < to; slot++) {
+                    if (current.values[slot] != null)
+                        visitor.visit(current.keys[slot], cast(current.values[slot]));
+                }
+                return to > current.mask ? -1 : to;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Probes for an id. May run concurrently with a writer, in which case the result is discarded by the caller.
+         * The probe is therefore bounded by the table capacity, so that it terminates on any intermediate state.
+         */
+        private V find(Table current, long id, long hash) {
+            int slot = (int) hash & current.mask;
+            for (int probes = 0; probes <= current.mask; probes++) {
+                Object value = current.values[slot];
+                if (value == null)
+                    return null;
+                if (current.keys[slot] == id)
+                    return cast(value);
+                slot = (slot + 1) & current.mask;
+            }
+            return null;
+        }
+
+        /**
+         * Clears a slot and moves subsequent entries of the same probe sequence back, so no tombstones are needed.
+         */
+        private static void shiftBack(Table current, int freedSlot) {
+            int slot = freedSlot;
+            while (true) {
+                slot = (slot + 1) & current.mask;
+                if (current.values[slot] == null)
+                    break;
+                int home = (int) hash(current.keys[slot]) & current.mask;
+
+                // The entry may only move back if its home slot does not lie cyclically in (freedSlot, slot].
+                boolean homeInRange = (freedSlot <= slot)
+                        ? (freedSlot < home && home <= slot)
+                        : (freedSlot < home || home <= slot);
+                if (!homeInRange) {
+                    current.keys[freedSlot] = current.keys[slot];
+                    current.values[freedSlot] = current.values[slot];
+                    freedSlot = slot;
+                }
+            }
+            current.values[freedSlot] = null;
+        }
+
+        private static Table resize(Table current) {
+            Table resized = new Table((current.mask + 1) << 1);
+            for (int slot = 0; slot <= current.mask; slot++) {
+                if (current.values[slot] == null)
+                    continue;
+                int target = (int) hash(current.keys[slot]) & resized.mask;
+                while (resized.values[target] != null)
+                    target = (target + 1) & resized.mask;
+                resized.keys[target] = current.keys[slot];
+                resized.values[target] = current.values[slot];
+            }
+            return resized;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V cast(Object value) {
+            return (V) value;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Registry entry of the Xox manager. Bundles a game with the per-game data the service layer keeps alongside it.
+ *
+ * @author Maximilian Schiedermeier
+ */
+final class GameSession {
+
+    final XoxGame game;
+
+    // Preallocated actions of the game's players. Created on first use, games restored in bulk may never need them.
+    private volatile ClaimActionTable actions;
+
+    // Accesses closer than this are not recorded, so frequently polled games do not write on every read.
+    private static final long TOUCH_GRANULARITY_MILLIS = 1000;
+
+    // Wall clock time of the last recorded access, in milliseconds.
+    private volatile long lastAccessMillis;
+
+    // Wall clock time at which the game was first seen finished by the evictor, 0 while it is running.
+    volatile long finishedAtMillis;
+
+    // Set to 1 once the end of the game was reported to the event listeners.
+    private volatile int finishReported;
+    private static final AtomicIntegerFieldUpdater<GameSession> FINISH_REPORTED =
+            AtomicIntegerFieldUpdater.newUpdater(GameSession.class, "finishReported");
+
+    // Ranking of the game. A zero score ranking while the game runs, replaced once by the final ranking.
+    private volatile Ranking ranking;
+    private static final AtomicReferenceFieldUpdater<GameSession, Ranking> RANKING =
+            AtomicReferenceFieldUpdater.newUpdater(GameSession.class, Ranking.class, "ranking");
+
+    GameSession(XoxGame game) {
+        this.game = game;
+        this.lastAccessMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the preallocated actions of the game's players. Racing threads may create separate tables, either one
+     * is valid.
+     */
+    ClaimActionTable getActions() {
+        ClaimActionTable table = actions;
+        if (table == null) {
+            table = new ClaimActionTable(game);
+            actions = table;
+        }
+        return table;
+    }
+
+    /**
+     * Memoized ranking of the game. Running games share one zero score ranking, finished games one final ranking,
+     * which is computed once and never changes afterwards. The returned instance is shared, callers must not modify
+     * it. Rankings are published with compare-and-set, so a ranking computed before the last move never replaces the
+     * final one.
+     *
+     * @param generator as the generator to compute a missing or outdated ranking with.
+     * @return the ranking matching the current state of the game.
+     */
+    Ranking getRanking(RankingGenerator generator) throws LogicException {
+        while (true) {
+            Ranking current = ranking;
+            if (current != null && (current.isGameOver() || !game.isFinished()))
+                return current;
+            Ranking computed = generator.computeRanking(game);
+            if (RANKING.compareAndSet(this, current, computed))
+                return computed;
+
+            // Another thread published a ranking meanwhile, possibly the final one. Use it if it is still current.
+        }
+    }
+
+    /**
+     * Claims the report of the game's end. Several threads may observe the finished game, only one of them reports.
+     *
+     * @return true for the first caller, false for all subsequent ones.
+     */
+    boolean claimFinishReport() {
+        return FINISH_REPORTED.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Records an access to the game. Used by the evictor to detect abandoned games and to pick the least recently used
+     * games if the registry is over capacity.
+     */
+    void touch() {
+        long now = System.currentTimeMillis();
+        if (now - lastAccessMillis >= TOUCH_GRANULARITY_MILLIS)
+            lastAccessMillis = now;
+    }
+
+    long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+}
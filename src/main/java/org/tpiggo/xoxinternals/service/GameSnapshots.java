@@ -0,0 +1,259 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.GameHistory;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes compact binary snapshots of all games held in a registry. A snapshot file starts with a header
+ * [int magic][int version][long log position][long game count], followed by one record per game and an end marker
+ * [byte 0]. A game record is:
+ * <ul>
+ * <li>type (1), game id (8).</li>
+ * <li>two player references (4 each). Players are numbered in order of first appearance. A reference to a player not
+ * seen before is followed by name and colour, each as length (2) and UTF-8 bytes.</li>
+ * <li>bot mask (1), the players whose moves are chosen by the server.</li>
+ * <li>the history of the game, see GameHistory. Holds board dimensions, moves, current player and finished flag.</li>
+ * </ul>
+ * Snapshots are named snapshot-[sequence].bin and written to a temporary file first, so a snapshot file is always
+ * complete.
+ *
+ * @author Maximilian Schiedermeier
+ */
+final class GameSnapshots {
+
+    private static final int MAGIC = 0x584F5853;
+    private static final int VERSION = 3;
+    private static final byte GAME = 1;
+    private static final byte END = 0;
+    private static final int GAME_COUNT_OFFSET = 16;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    // Amount of registry slots collected per scan window. Bounds how long a registry segment is read locked.
+    private static final int SCAN_WINDOW = 1024;
+
+    // Bound of the player instance cache. Games created through the API do not share instances, the cache would only
+    // grow for those.
+    private static final int MAX_CACHED_INSTANCES = 1 << 16;
+
+    // Size of the write buffer. Must exceed the largest possible record.
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private GameSnapshots() {
+    }
+
+    /**
+     * Writes a snapshot of all games of a registry. The registry is scanned window by window, so moves and creations
+     * proceed while the snapshot is taken. Each game is captured in a consistent state, the snapshot as a whole is not
+     * a point in time image: it includes every change made before the snapshot started, and possibly later ones.
+     *
+     * @param directory   as the target directory.
+     * @param sequence    as the sequence number of the snapshot, part of the file name.
+     * @param logPosition as the first move log segment not covered by the snapshot, -1 if there is no log.
+     * @return the amount of games written.
+     */
+    static long write(GameRegistry<GameSession> sessions, Path directory, long sequence, long logPosition)
+            throws IOException {
+        Path target = directory.resolve(name(sequence));
+        Path temporary = directory.resolve(name(sequence) + ".tmp");
+        long gameCount = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(logPosition).putLong(0);
+
+            final long[] windowIds = new long[SCAN_WINDOW];
+            final GameSession[] window = new GameSession[SCAN_WINDOW];
+            final int[] windowSize = new int[1];
+            // Players are deduplicated by name and colour. Most games share player instances with other games (restored
+            // games, bots), so instances are looked up first, which avoids building a key per game.
+            Map<String, Integer> playerRefs = new HashMap<>();
+            Map<Player, Integer> refsByInstance = new IdentityHashMap<>();
+            long cursor = 0;
+            do {
+                windowSize[0] = 0;
+                cursor = sessions.scan(cursor, SCAN_WINDOW, new GameRegistry.Visitor<GameSession>() {
+                    @Override
+                    public void visit(long id, GameSession session) {
+                        windowIds[windowSize[0]] = id;
+                        window[windowSize[0]++] = session;
+                    }
+                });
+
+                // Games are encoded outside the scan, so the registry segment is not locked meanwhile.
+                for (int i = 0; i < windowSize[0]; i++) {
+                    XoxGame game = window[i].game;
+                    window[i] = null;
+                    GameHistory history = game.getHistory();
+
+                    byte[][] newPlayers = new byte[4][];
+                    int[] refs = new int[2];
+                    int size = 18 + history.getEncodedSize();
+                    for (int player = 0; player < 2; player++) {
+                        Player info = game.getPlayerInfo(player);
+                        Integer ref = refsByInstance.get(info);
+                        if (ref == null) {
+                            String key = info.getName() + '\n' + info.getPreferredColour();
+                            ref = playerRefs.get(key);
+                            if (ref == null) {
+                                ref = playerRefs.size();
+                                playerRefs.put(key, ref);
+                                newPlayers[2 * player] = encode(info.getName());
+                                newPlayers[2 * player + 1] = encode(info.getPreferredColour());
+                                size += 4 + newPlayers[2 * player].length + newPlayers[2 * player + 1].length;
+                            }
+                            if (refsByInstance.size() >= MAX_CACHED_INSTANCES)
+                                refsByInstance.clear();
+                            refsByInstance.put(info, ref);
+                        }
+                        refs[player] = ref;
+                    }
+
+                    if (buffer.remaining() < size)
+                        flush(buffer, channel);
+                    buffer.put(GAME).putLong(windowIds[i]);
+                    for (int player = 0; player < 2; player++) {
+                        buffer.putInt(refs[player]);
+                        if (newPlayers[2 * player] != null) {
+                            buffer.putShort((short) newPlayers[2 * player].length).put(newPlayers[2 * player]);
+                            buffer.putShort((short) newPlayers[2 * player + 1].length).put(newPlayers[2 * player + 1]);
+                        }
+                    }
+                    buffer.put((byte) game.getBotMask());
+                    history.writeTo(buffer);
+                    gameCount++;
+                }
+            } while (cursor != 0);
+
+            if (buffer.remaining() < 1)
+                flush(buffer, channel);
+            buffer.put(END);
+            flush(buffer, channel);
+
+            // The count is only known now, patch it into the header.
+            buffer.putLong(gameCount).flip();
+            channel.write(buffer, GAME_COUNT_OFFSET);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return gameCount;
+    }
+
+    /**
+     * Loads all games of a snapshot into a registry. The file is memory mapped and decoded in a single pass. Games
+     * already registered under the same id are replaced.
+     *
+     * @return the first move log segment not covered by the snapshot, -1 if the snapshot was taken without a log.
+     */
+    static long load(Path snapshot, GameRegistry<GameSession> sessions) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.getInt() != MAGIC || data.getInt() != VERSION)
+            throw new IOException("Not a supported game snapshot: " + snapshot);
+        long logPosition = data.getLong();
+        long expectedCount = data.getLong();
+        sessions.ensureCapacity((int) Math.min(Integer.MAX_VALUE, sessions.size() + expectedCount));
+
+        List<Player> players = new ArrayList<>();
+        long gameCount = 0;
+        while (data.get() == GAME) {
+            long gameId = data.getLong();
+            Player first = readPlayer(data, players);
+            Player second = readPlayer(data, players);
+            int botMask = data.get();
+            XoxGame game = XoxGame.restore(first, second, GameHistory.readFrom(data), botMask);
+            sessions.put(gameId, new GameSession(game));
+            gameCount++;
+        }
+        if (gameCount != expectedCount)
+            throw new IOException("Game snapshot is incomplete: " + snapshot);
+        return logPosition;
+    }
+
+    /**
+     * @return the snapshot with the highest sequence number in a directory, null if there is none.
+     */
+    static Path latest(Path directory) throws IOException {
+        List<Path> snapshots = list(directory);
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    /**
+     * Deletes all snapshots with a sequence number lower than the provided one.
+     */
+    static void deleteBefore(Path directory, long sequence) throws IOException {
+        for (Path snapshot : list(directory)) {
+            if (sequenceOf(snapshot) < sequence)
+                Files.deleteIfExists(snapshot);
+        }
+    }
+
+    static long sequenceOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory))
+            return snapshots;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream)
+                snapshots.add(file);
+        }
+
+        // Sequence numbers are zero padded, so the names sort in sequence order.
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+
+    private static String name(long sequence) {
+        return String.format("%s%019d%s", PREFIX, sequence, SUFFIX);
+    }
+
+    private static Player readPlayer(ByteBuffer data, List<Player> players) {
+        int ref = data.getInt();
+        if (ref == players.size())
+            players.add(new Player(decode(data), decode(data)));
+        return players.get(ref);
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private static byte[] encode(String string) {
+        byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+            throw new RuntimeException("Player details exceed the snapshot record size.");
+        return bytes;
+    }
+
+    private static String decode(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
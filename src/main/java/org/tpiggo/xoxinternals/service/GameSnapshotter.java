@@ -0,0 +1,159 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes a compact binary snapshot of all games of the Xox manager, see GameSnapshots. Snapshots are
+ * taken on a background thread while moves continue to be processed.
+ * <p>
+ * If the move log is enabled, snapshots are written to the log directory. Each snapshot records the first log segment
+ * it does not cover, so on startup the log loads the snapshot and only replays the newer segments. Segments and
+ * snapshots made obsolete by a new snapshot are deleted. Without the move log, the latest snapshot is loaded by this
+ * service on startup.
+ * <p>
+ * Enabled with the property xox.snapshot.enabled=true.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@ConditionalOnProperty(name = "xox.snapshot.enabled", havingValue = "true")
+public class GameSnapshotter {
+
+    private final XoxManagerImpl manager;
+    private final Path directory;
+    private final long intervalMillis;
+    private MoveLog moveLog;
+    private ScheduledExecutorService scheduler;
+
+    // Statistics of the last completed snapshot.
+    private volatile long lastGameCount;
+    private volatile long lastDurationMillis;
+
+    /**
+     * @param manager        as the manager whose games are captured.
+     * @param directory      as the snapshot directory. Ignored if the move log is enabled.
+     * @param intervalMillis as the pause between two snapshots.
+     */
+    public GameSnapshotter(XoxManagerImpl manager,
+                           @Value("${xox.snapshot.directory:xox-log}") String directory,
+                           @Value("${xox.snapshot.interval-ms:60000}") long intervalMillis) {
+        if (intervalMillis < 1)
+            throw new RuntimeException("Snapshot interval must be positive.");
+        this.manager = manager;
+        this.directory = Paths.get(directory);
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Sets the move log snapshots are coordinated with.
+     */
+    @Autowired(required = false)
+    public void setMoveLog(MoveLog moveLog) {
+        this.moveLog = moveLog;
+    }
+
+    /**
+     * Restores the latest snapshot, unless the move log already did, resumes the turns of server controlled players
+     * and schedules periodic snapshots.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (moveLog == null) {
+            Path latest = GameSnapshots.latest(directory);
+            if (latest != null) {
+                GameSnapshots.load(latest, manager.getSessions());
+                manager.resumeBotTurns();
+            }
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xox-snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+
+                    // The next run retries. Error handling ignored for case study simplicity.
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null)
+            scheduler.shutdown();
+    }
+
+    /**
+     * Writes a snapshot of all games now, then deletes the snapshots and log segments it makes obsolete.
+     *
+     * @return the amount of games written.
+     */
+    public synchronized long snapshot() throws IOException {
+        long start = System.currentTimeMillis();
+        Path target = snapshotDirectory();
+        Files.createDirectories(target);
+
+        // With a log, everything logged before the new segment is covered. Without one, sequence numbers just count.
+        long sequence;
+        long logPosition;
+        if (moveLog != null) {
+            logPosition = moveLog.startNewSegment();
+            sequence = logPosition;
+        } else {
+            Path latest = GameSnapshots.latest(target);
+            logPosition = -1;
+            sequence = latest == null ? 0 : GameSnapshots.sequenceOf(latest) + 1;
+        }
+
+        long gameCount = GameSnapshots.write(manager.getSessions(), target, sequence, logPosition);
+        GameSnapshots.deleteBefore(target, sequence);
+        if (moveLog != null)
+            moveLog.deleteSegmentsBefore(logPosition);
+
+        lastGameCount = gameCount;
+        lastDurationMillis = System.currentTimeMillis() - start;
+        return gameCount;
+    }
+
+    /**
+     * @return the amount of games in the last completed snapshot.
+     */
+    public long getLastGameCount() {
+        return lastGameCount;
+    }
+
+    /**
+     * @return the time the last completed snapshot took, in milliseconds.
+     */
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    private Path snapshotDirectory() {
+        return moveLog != null ? moveLog.getDirectory() : directory;
+    }
+}
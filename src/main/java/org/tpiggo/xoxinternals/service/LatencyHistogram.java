@@ -0,0 +1,115 @@
+package org.tpiggo.xoxinternals.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds with a fixed relative precision. Values are counted in log-linear
+ * buckets: every power of two is split into 32 equally wide sub-buckets, so a reported percentile exceeds the recorded
+ * value by at most 1/32 (about 3%). Recording is wait-free and never allocates. The largest distinguishable value is
+ * about 36 minutes (2^41 ns); larger values are counted in the last bucket.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class LatencyHistogram {
+
+    // Sub-buckets per power of two, as a power of two.
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Buckets cover values up to 2^(MAX_EXPONENT + 1).
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts a single latency.
+     *
+     * @param nanos as the latency in nanoseconds. Negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // Retry, another thread raised the maximum concurrently.
+        }
+    }
+
+    /**
+     * @return the amount of recorded latencies.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the exact mean of all recorded latencies in nanoseconds, 0 if none was recorded.
+     */
+    public double getMean() {
+        long recorded = count.sum();
+        return recorded == 0 ? 0 : (double) sum.sum() / recorded;
+    }
+
+    /**
+     * @return the exact largest recorded latency in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Looks up the latency below or at which a given share of all recorded latencies lies. Not atomic with respect to
+     * concurrent recording.
+     *
+     * @param percentile as the share in percent. Range: [0-100]
+     * @return the upper bound of the bucket holding the percentile, but never more than the largest recorded latency.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            total += counts.get(bucket);
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+                return Math.min(upperBoundOf(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Maps a value to its bucket. Values below SUB_BUCKETS get a bucket each, every later power of two is split into
+     * SUB_BUCKETS buckets.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (exponent > MAX_EXPONENT - SUB_BUCKET_BITS)
+            return BUCKETS - 1;
+        return (exponent + 1) * SUB_BUCKETS + (int) ((value >>> exponent) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return the largest value mapped to a bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << exponent;
+        return lowerBound + (1L << exponent) - 1;
+    }
+}
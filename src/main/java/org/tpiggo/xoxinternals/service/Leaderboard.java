@@ -0,0 +1,206 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Global leaderboard across all games of the Xox manager. Counts wins, losses and draws per player name and keeps an
+ * Elo rating, starting at 1500. Updated incrementally whenever a game ends.
+ * <p>
+ * Standings are kept in a concurrent skip list ordered by rating, so the top K players are read in O(log n + K)
+ * without locking. Ranks are answered by a Fenwick tree that counts players per integer rating, so the rank of a
+ * player is the amount of players with a higher rating plus one, obtained in O(log r) for a rating range r. Updates
+ * are serialized, reads may observe a player twice or not at all while their standing is being replaced.
+ * <p>
+ * Standings are held in memory only, games restored on startup do not count again. Enabled unless the property
+ * xox.leaderboard.enabled=false.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@ConditionalOnProperty(name = "xox.leaderboard.enabled", havingValue = "true", matchIfMissing = true)
+public class Leaderboard implements GameEventListener {
+
+    static final double INITIAL_RATING = 1500;
+
+    // Ratings are clamped to [0, MAX_RATING] for ranking. Elo ratings practically never leave this range.
+    private static final int MAX_RATING = 4095;
+
+    // Orders by rating, highest first. Names break ties, so every player has a distinct position.
+    private static final Comparator<PlayerStanding> BY_RATING = new Comparator<PlayerStanding>() {
+        @Override
+        public int compare(PlayerStanding first, PlayerStanding second) {
+            int byRating = Double.compare(second.getExactRating(), first.getExactRating());
+            return byRating != 0 ? byRating : first.getName().compareTo(second.getName());
+        }
+    };
+
+    private final XoxManagerImpl manager;
+    private final double kFactor;
+    private final ConcurrentHashMap<String, PlayerStanding> standings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<PlayerStanding> order = new ConcurrentSkipListSet<>(BY_RATING);
+
+    // Fenwick tree over the rounded ratings, 1-based. Entry i covers the counts of the ratings (i - lowbit(i), i].
+    private final AtomicIntegerArray ratingCounts = new AtomicIntegerArray(MAX_RATING + 2);
+
+    /**
+     * @param manager as the manager whose finished games are counted.
+     * @param kFactor as the maximum rating change per game.
+     */
+    public Leaderboard(XoxManagerImpl manager, @Value("${xox.leaderboard.k-factor:32}") double kFactor) {
+        if (kFactor <= 0)
+            throw new RuntimeException("Rating k-factor must be positive.");
+        this.manager = manager;
+        this.kFactor = kFactor;
+    }
+
+    @PostConstruct
+    public void start() {
+        manager.addEventListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        manager.removeEventListener(this);
+    }
+
+    @Override
+    public void onGameCreated(long gameId, XoxGame game) {
+    }
+
+    @Override
+    public void onMoveApplied(long gameId, int cell, int playerIndex) {
+    }
+
+    @Override
+    public void onGameFinished(long gameId, Ranking ranking) {
+        record(ranking);
+    }
+
+    @Override
+    public void onGameRemoved(long gameId) {
+    }
+
+    /**
+     * Counts the result of a finished game and adjusts the ratings of both players. Rankings of running games are
+     * ignored.
+     *
+     * @param ranking as the final ranking of a game.
+     */
+    public synchronized void record(Ranking ranking) {
+        if (!ranking.isGameOver())
+            return;
+        Player[] players = ranking.getPlayersDescending();
+        int[] scores = ranking.getScoresDescending();
+        String firstName = players[0].getName();
+        String secondName = players[1].getName();
+        if (firstName.equals(secondName))
+            return;
+
+        PlayerStanding first = standingOf(firstName);
+        PlayerStanding second = standingOf(secondName);
+        boolean draw = scores[0] == scores[1];
+
+        // Elo: the change is proportional to the difference between the actual and the expected result.
+        double expected = 1 / (1 + Math.pow(10, (second.getExactRating() - first.getExactRating()) / 400));
+        double change = kFactor * ((draw ? 0.5 : 1) - expected);
+        replace(first, draw ? first.withResult(0, 0, 1, change) : first.withResult(1, 0, 0, change));
+        replace(second, draw ? second.withResult(0, 0, 1, -change) : second.withResult(0, 1, 0, -change));
+    }
+
+    /**
+     * @param limit as the maximum amount of standings to return.
+     * @return the standings of the highest rated players, highest first, with their ranks.
+     */
+    public List<PlayerStanding> getTop(int limit) {
+        List<PlayerStanding> top = new ArrayList<>(Math.max(0, Math.min(limit, standings.size())));
+        int rank = 0;
+        int previousBucket = -1;
+        for (PlayerStanding standing : order) {
+            if (top.size() >= limit)
+                break;
+
+            // Ratings descend, so a player either shares the rank of the previous one or is ranked by position.
+            int bucket = bucketOf(standing.getExactRating());
+            if (bucket != previousBucket)
+                rank = top.size() + 1;
+            previousBucket = bucket;
+            top.add(standing.withRank(rank));
+        }
+        return top;
+    }
+
+    /**
+     * @return the standing of a player with its rank, or null if the player did not finish any game yet.
+     */
+    public PlayerStanding getStanding(String name) {
+        PlayerStanding standing = standings.get(name);
+        if (standing == null)
+            return null;
+        return standing.withRank(rankOf(standing.getExactRating()));
+    }
+
+    /**
+     * @return the amount of players on the leaderboard.
+     */
+    public int size() {
+        return standings.size();
+    }
+
+    private PlayerStanding standingOf(String name) {
+        PlayerStanding standing = standings.get(name);
+        if (standing != null)
+            return standing;
+        standing = new PlayerStanding(name, 0, 0, 0, INITIAL_RATING, 0);
+        standings.put(name, standing);
+        order.add(standing);
+        countRating(standing.getExactRating(), 1);
+        return standing;
+    }
+
+    private void replace(PlayerStanding previous, PlayerStanding updated) {
+        order.remove(previous);
+        countRating(previous.getExactRating(), -1);
+        order.add(updated);
+        countRating(updated.getExactRating(), 1);
+        standings.put(updated.getName(), updated);
+    }
+
+    /**
+     * @return one plus the amount of players whose rounded rating exceeds the provided one.
+     */
+    private int rankOf(double rating) {
+        return countUpTo(MAX_RATING) - countUpTo(bucketOf(rating)) + 1;
+    }
+
+    private void countRating(double rating, int delta) {
+        for (int i = bucketOf(rating) + 1; i < ratingCounts.length(); i += i & -i)
+            ratingCounts.addAndGet(i, delta);
+    }
+
+    /**
+     * @return the amount of players with a rounded rating of at most the provided bucket.
+     */
+    private int countUpTo(int bucket) {
+        int count = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i)
+            count += ratingCounts.get(i);
+        return count;
+    }
+
+    private static int bucketOf(double rating) {
+        return (int) Math.max(0, Math.min(MAX_RATING, Math.round(rating)));
+    }
+}
@@ -0,0 +1,432 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.BoardSnapshot;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monte Carlo tree search bot for boards too large to solve. Every search grows a tree of moves from the current
+ * position, guided by UCT, and scores each tree move by the results of random playouts through it. The candidate moves
+ * of a position are the free cells, the actions the ActionGenerator offers.
+ * <p>
+ * Playouts run in parallel on a fork-join pool, all workers sharing one tree. The tree is lock-free: statistics are
+ * updated atomically and the children of a node are published with a single compare-and-swap. A worker counts its
+ * visit to a node before its playout completes (virtual loss), so concurrent workers spread over different moves
+ * instead of all following the same one. A search ends when its time budget or its playout budget is used up.
+ * <p>
+ * Bot moves are searched asynchronously: the manager requests a move and the chosen cell is applied once the search
+ * completes, so no request or shard thread waits for a search. Requested searches run one after another, each with
+ * all workers of the pool, so concurrent requests never shorten each other's budget. Searches queue up while more
+ * bots are on turn than searches complete, see getPendingSearchCount.
+ * <p>
+ * Enabled with the property xox.mcts.enabled=true. Replaces the heuristic bot on boards larger than 3x3.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@ConditionalOnProperty(name = "xox.mcts.enabled", havingValue = "true")
+public class MctsEngine implements BotStrategy {
+
+    // Results are counted in half points, from the view of the player who made the move into a node.
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    // Visits a node must receive before its children are created. Keeps the tree small on large boards.
+    private static final int EXPANSION_THRESHOLD = 2;
+
+    private final XoxManagerImpl manager;
+    private final ForkJoinPool pool;
+    private final long timeBudgetNanos;
+    private final long playoutBudget;
+    private final double exploration;
+
+    // Runs requested searches one at a time.
+    private final ThreadPoolExecutor requests;
+
+    // Totals over all searches, for capacity planning.
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder playouts = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    /**
+     * @param manager           as the manager whose bots are played by this engine.
+     * @param timeBudgetMillis  as the maximum duration of a search. 0 for no time limit.
+     * @param playoutBudget     as the maximum amount of playouts per search. 0 for no playout limit.
+     * @param parallelism       as the amount of worker threads. 0 for one per available core.
+     * @param exploration       as the UCT exploration constant. Higher values try more moves.
+     */
+    public MctsEngine(XoxManagerImpl manager,
+                      @Value("${xox.mcts.time-budget-ms:100}") long timeBudgetMillis,
+                      @Value("${xox.mcts.playout-budget:0}") long playoutBudget,
+                      @Value("${xox.mcts.parallelism:0}") int parallelism,
+                      @Value("${xox.mcts.exploration:1.4}") double exploration) {
+        if (timeBudgetMillis <= 0 && playoutBudget <= 0)
+            throw new RuntimeException("Search needs a time or a playout budget.");
+        this.manager = manager;
+        this.timeBudgetNanos = timeBudgetMillis * 1000000;
+        this.playoutBudget = playoutBudget;
+        this.exploration = exploration;
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    @Override
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setName("xox-mcts-" + thread.getPoolIndex());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, null, false);
+        requests = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "xox-mcts-requests");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    @PostConstruct
+    public void start() {
+        manager.setBoardBotStrategy(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        manager.setBoardBotStrategy(null);
+        requests.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    @Override
+    public void requestCell(final XoxGame game, final CellCallback callback) {
+        try {
+            requests.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onCellChosen(chooseCell(game));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+
+            // The engine is shut down, the bot stays on turn. Error handling ignored for case study simplicity.
+        }
+    }
+
+    /**
+     * Chooses the next move of the current player of a game. Blocks until the search completes.
+     *
+     * @return the cell to claim, y * width + x, or -1 if the game is over.
+     */
+    public int chooseCell(XoxGame game) {
+        BoardSnapshot board;
+        int playerIndex;
+        synchronized (game) {
+            if (game.isFinished())
+                return -1;
+            board = game.getBoard();
+            playerIndex = game.getCurrentPlayerIndex();
+        }
+        return search(board, playerIndex);
+    }
+
+    /**
+     * Searches the best move of a player. Blocks until the budget is used up.
+     *
+     * @param board       as the position to search from.
+     * @param playerIndex as the index of the player to move. Range: [0-1]
+     * @return the cell with the most visits, y * width + x, or -1 if no cell is free.
+     */
+    public int search(BoardReadOnly board, final int playerIndex) {
+        long start = System.nanoTime();
+        final Position root = new Position(board);
+        if (root.freeCount == 0)
+            return -1;
+
+        // The root represents the move that led to the position, made by the opponent.
+        final Node rootNode = new Node(-1, 1 - playerIndex);
+        final long deadline = timeBudgetNanos > 0 ? start + timeBudgetNanos : Long.MAX_VALUE;
+        final AtomicLong remaining = new AtomicLong(playoutBudget > 0 ? playoutBudget : Long.MAX_VALUE);
+        ForkJoinTask<?>[] workers = new ForkJoinTask<?>[pool.getParallelism()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Position position = new Position(root);
+                    Node[] path = new Node[root.freeCount + 1];
+                    long completed = 0;
+                    while (System.nanoTime() < deadline && remaining.getAndDecrement() > 0) {
+                        playout(rootNode, root, position, path, playerIndex);
+                        completed++;
+                    }
+                    playouts.add(completed);
+                }
+            });
+        }
+        for (ForkJoinTask<?> worker : workers)
+            worker.join();
+        searches.increment();
+        searchNanos.add(System.nanoTime() - start);
+
+        // The most visited move is the most robust choice, its value estimate rests on the most playouts.
+        Node best = null;
+        Node[] children = rootNode.children;
+        if (children == null)
+            return root.free[0];
+        for (Node child : children)
+            if (best == null || child.visits > best.visits)
+                best = child;
+        return best.cell;
+    }
+
+    /**
+     * Runs one iteration: descends the tree by UCT, expanding the last node if it was visited often enough, finishes
+     * the game with random moves and adds the result to every node on the way.
+     */
+    private void playout(Node rootNode, Position root, Position position, Node[] path, int playerIndex) {
+        position.reset(root);
+        int depth = 0;
+        Node node = rootNode;
+        node.addVisit();
+        path[depth++] = node;
+        int mover = playerIndex;
+        int winner = -1;
+        boolean over = false;
+        while (true) {
+            Node[] children = node.children;
+            if (children == null) {
+                if (node.visits < EXPANSION_THRESHOLD)
+                    break;
+                children = node.expand(position, mover);
+            }
+            Node child = select(node, children);
+            child.addVisit();
+            path[depth++] = child;
+            if (position.claim(child.cell, mover)) {
+                winner = mover;
+                over = true;
+                break;
+            }
+            mover = 1 - mover;
+            node = child;
+            if (position.freeCount == 0) {
+                over = true;
+                break;
+            }
+        }
+        if (!over)
+            winner = position.playRandomly(mover);
+        for (int i = 0; i < depth; i++)
+            path[i].addResult(winner < 0 ? DRAW : winner == path[i].player ? WIN : 0);
+    }
+
+    private Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(1, parent.visits));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits;
+            if (visits == 0)
+                return child;
+            double value = child.score / (2.0 * visits) + exploration * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    public long getSearchCount() {
+        return searches.sum();
+    }
+
+    public long getPlayoutCount() {
+        return playouts.sum();
+    }
+
+    /**
+     * @return the amount of requested searches not started yet.
+     */
+    public int getPendingSearchCount() {
+        return requests.getQueue().size();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return the playouts completed per second of search, over all searches so far. Divide by the parallelism for
+     * the throughput of a single core.
+     */
+    public double getPlayoutsPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : playouts.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * Node of the shared search tree. Represents a move, the statistics count the results of all playouts through it.
+     */
+    private static final class Node {
+        private static final AtomicIntegerFieldUpdater<Node> VISITS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        private static final AtomicLongFieldUpdater<Node> SCORE =
+                AtomicLongFieldUpdater.newUpdater(Node.class, "score");
+        private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+        // Claimed cell and the index of the player who claimed it.
+        final int cell;
+        final int player;
+
+        volatile int visits;
+        volatile long score;
+        volatile Node[] children;
+
+        Node(int cell, int player) {
+            this.cell = cell;
+            this.player = player;
+        }
+
+        void addVisit() {
+            VISITS.incrementAndGet(this);
+        }
+
+        void addResult(int points) {
+            if (points != 0)
+                SCORE.addAndGet(this, points);
+        }
+
+        /**
+         * Creates one child per free cell. If another worker expands the node concurrently, its children are kept.
+         */
+        Node[] expand(Position position, int mover) {
+            Node[] created = new Node[position.freeCount];
+            for (int i = 0; i < created.length; i++)
+                created[i] = new Node(position.free[i], mover);
+            return CHILDREN.compareAndSet(this, null, created) ? created : children;
+        }
+    }
+
+    /**
+     * Mutable position of a playout. Owned by a single worker, reset to the searched position before every playout.
+     */
+    private static final class Position {
+        final int width;
+        final int height;
+        final int lineLength;
+        final long[][] cells;
+
+        // Free cells in arbitrary order, and the slot of every cell within that list.
+        final int[] free;
+        final int[] slots;
+        int freeCount;
+
+        Position(BoardReadOnly board) {
+            width = board.getWidth();
+            height = board.getHeight();
+            lineLength = board.getLineLength();
+            cells = new long[2][(width * height + 63) >>> 6];
+            free = new int[width * height];
+            slots = new int[width * height];
+            int[][] values = board.getCells();
+            for (int cell = 0; cell < width * height; cell++) {
+                int value = values[cell / width][cell % width];
+                if (value == 0) {
+                    slots[cell] = freeCount;
+                    free[freeCount++] = cell;
+                } else
+                    cells[value - 1][cell >>> 6] |= 1L << cell;
+            }
+        }
+
+        Position(Position other) {
+            width = other.width;
+            height = other.height;
+            lineLength = other.lineLength;
+            cells = new long[2][other.cells[0].length];
+            free = new int[other.free.length];
+            slots = new int[other.slots.length];
+            reset(other);
+        }
+
+        void reset(Position other) {
+            for (int player = 0; player < 2; player++)
+                System.arraycopy(other.cells[player], 0, cells[player], 0, cells[player].length);
+            System.arraycopy(other.free, 0, free, 0, free.length);
+            System.arraycopy(other.slots, 0, slots, 0, slots.length);
+            freeCount = other.freeCount;
+        }
+
+        /**
+         * Claims a free cell.
+         *
+         * @return true if the claim completes a line of the player.
+         */
+        boolean claim(int cell, int player) {
+            int slot = slots[cell];
+            int last = free[--freeCount];
+            free[slot] = last;
+            slots[last] = slot;
+            cells[player][cell >>> 6] |= 1L << cell;
+            return completesLine(cell % width, cell / width, cells[player]);
+        }
+
+        /**
+         * Plays random moves until the game ends.
+         *
+         * @return the index of the winner, -1 for a draw.
+         */
+        int playRandomly(int mover) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (freeCount > 0) {
+                if (claim(free[random.nextInt(freeCount)], mover))
+                    return mover;
+                mover = 1 - mover;
+            }
+            return -1;
+        }
+
+        private boolean completesLine(int x, int y, long[] playerCells) {
+            return run(x, y, 1, 0, playerCells) + run(x, y, -1, 0, playerCells) >= lineLength - 1
+                    || run(x, y, 0, 1, playerCells) + run(x, y, 0, -1, playerCells) >= lineLength - 1
+                    || run(x, y, 1, 1, playerCells) + run(x, y, -1, -1, playerCells) >= lineLength - 1
+                    || run(x, y, 1, -1, playerCells) + run(x, y, -1, 1, playerCells) >= lineLength - 1;
+        }
+
+        private int run(int x, int y, int dx, int dy, long[] playerCells) {
+            int count = 0;
+            x += dx;
+            y += dy;
+            while (count < lineLength - 1 && x >= 0 && x < width && y >= 0 && y < height
+                    && (playerCells[(y * width + x) >>> 6] & (1L << (y * width + x))) != 0) {
+                count++;
+                x += dx;
+                y += dy;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.tpiggo.xoxinternals.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for the validation and application of a single move, see XoxActionInterpreter. Covers the
+ * atomic claim of the cell only, not the notification of the game event listeners that follows it.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Name("org.tpiggo.xox.Move")
+@Label("Move")
+@Category("Xox")
+@Description("A move was validated and, unless rejected, applied.")
+@StackTrace(false)
+@Threshold("20 us")
+final class MoveEvent extends Event {
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("Player Index")
+    int playerIndex;
+
+    @Label("Cell")
+    @Description("Claimed cell, y * width + x. -1 if the selected action did not resolve to a cell.")
+    int cell;
+
+    @Label("Server Controlled")
+    boolean bot;
+
+    @Label("Outcome")
+    @Description("Name of the MoveStatus code.")
+    String outcome;
+}
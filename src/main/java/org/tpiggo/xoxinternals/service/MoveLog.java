@@ -0,0 +1,674 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.tpiggo.xoxinternals.model.BoardSnapshot;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only binary log of all game events of the Xox manager. Every creation, move and removal is appended
+ * to the log, and on startup the log is replayed to rebuild the games held before a restart.
+ * <p>
+ * Events are encoded into an in-memory batch by the threads issuing them. A thread claims room in the batch with a
+ * single compare-and-set on its fill level and encodes its event there, so threads never wait for each other while
+ * appending. A single writer thread seals the batch, replaces it with a fresh one on the spare buffer, and writes the
+ * sealed batch as one frame, followed by one fsync (group commit). Only threads that find the batch full wait, until
+ * the writer replaced it. In sync mode the issuing threads also wait until the frame holding their event is durable,
+ * so a move is only acknowledged once it survives a crash. Each batch releases exactly the threads waiting for it, and
+ * all of them share the same fsync. Sync mode bounds every issuing thread, including the shard threads of the sharded
+ * execution mode, to one event per fsync. It is therefore off by default: events are then durable within one group
+ * commit, but acknowledged before.
+ * <p>
+ * Logging never fails a state change that was already applied. Once a frame can not be written, the log turns
+ * unavailable: events of the failed frame and all later events are counted as lost, and the manager rejects further
+ * moves, creations and removals, see isAvailable.
+ * <p>
+ * The log is a directory of segment files named moves-[sequence].log. A new segment is started once the current one
+ * exceeds the configured size, and on every startup, so a torn tail of a crashed process is never appended to. A
+ * segment is a sequence of frames [int length][int CRC-32 of payload][payload]. Replay of a segment stops at the first
+ * incomplete or corrupt frame. The payload is a sequence of records:
+ * <ul>
+ * <li>CREATE: type (1), game id (8), width (1), height (1), line length (1), names and colours of both players, each
+ * as length (2) and UTF-8 bytes.</li>
+ * <li>CREATE_WITH_BOTS: as CREATE, followed by the bot mask of the game (1). Written for games with server
+ * controlled players only.</li>
+ * <li>MOVE: type (1), game id (8), cell (2), player index (1).</li>
+ * <li>REMOVE: type (1), game id (8).</li>
+ * </ul>
+ * Enabled with the property xox.log.enabled=true, sync mode with xox.log.sync=true.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@ConditionalOnProperty(name = "xox.log.enabled", havingValue = "true")
+public class MoveLog implements GameEventListener {
+
+    static final byte CREATE = 1;
+    static final byte MOVE = 2;
+    static final byte REMOVE = 3;
+    static final byte CREATE_WITH_BOTS = 4;
+
+    private static final int MOVE_BYTES = 12;
+    private static final int REMOVE_BYTES = 9;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "moves-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Largest possible record, a creation with bots and four strings of maximum length. A batch must hold it.
+    private static final int MAX_RECORD_BYTES = 13 + 4 * (2 + Short.MAX_VALUE);
+
+    // Layout of a batch state: the sealed flag, the amount of events and the amount of bytes appended.
+    private static final long SEALED = 1L << 62;
+    private static final long EVENT = 1L << 32;
+    private static final long BYTES_MASK = EVENT - 1;
+
+    private final XoxManagerImpl manager;
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean sync;
+
+    // Batch events are appended to. Replaced by the writer only.
+    private volatile Batch active;
+
+    // Amount of events in batches already sealed by the writer. Events of the active batch are not included.
+    private volatile long sealedEvents;
+    private final LongAdder lost = new LongAdder();
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    // Amount of segment changes requested and performed, and the sequence number of the last new segment. Changed
+    // while holding rollLock only.
+    private final Object rollLock = new Object();
+    private volatile long rollRequests;
+    private volatile long rollsDone;
+    private long rolledSequence;
+
+    // Only accessed by the writer thread, once started.
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+    private final ByteBuffer[] frame = new ByteBuffer[2];
+    private ByteBuffer spare;
+    private FileChannel segment;
+    private long segmentSequence;
+
+    private Thread writer;
+    private long replayedEvents;
+
+    /**
+     * @param manager      as the manager whose events are logged and whose games are restored on startup.
+     * @param directory    as the directory holding the log segments. Created if missing.
+     * @param segmentBytes as the size after which a new segment is started.
+     * @param bufferBytes  as the capacity of each of the two event buffers. Bounds the size of a single frame. Must
+     *                     hold the largest possible record, about 128 KiB.
+     * @param sync         whether issuing threads wait until their events are forced to disk.
+     */
+    public MoveLog(XoxManagerImpl manager,
+                   @Value("${xox.log.directory:xox-log}") String directory,
+                   @Value("${xox.log.segment-bytes:67108864}") long segmentBytes,
+                   @Value("${xox.log.buffer-bytes:1048576}") int bufferBytes,
+                   @Value("${xox.log.sync:false}") boolean sync) {
+        if (segmentBytes < 1 || bufferBytes < MAX_RECORD_BYTES)
+            throw new RuntimeException("Log segments must not be empty and buffers must hold at least "
+                    + MAX_RECORD_BYTES + " bytes.");
+        this.manager = manager;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.sync = sync;
+        active = new Batch(ByteBuffer.allocateDirect(bufferBytes));
+        spare = ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    /**
+     * Restores the games of the manager, then starts a new segment and begins logging. Games are restored from the
+     * latest snapshot in the log directory, if any, followed by all segments the snapshot does not cover. Finally,
+     * server controlled players move in all restored games where it is their turn.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        long replayFrom = 0;
+        Path snapshot = GameSnapshots.latest(directory);
+        if (snapshot != null)
+            replayFrom = Math.max(0, GameSnapshots.load(snapshot, manager.getSessions()));
+
+        // Moves of concurrent requests on the same game may be logged out of turn order. Such moves are held back
+        // until the preceding move of the game was replayed. Segments written while the snapshot was taken may also
+        // repeat moves the snapshot already holds, those are rejected by the game and skipped.
+        List<Path> segments = listSegments();
+        Map<Long, List<Integer>> heldBack = new HashMap<>();
+        for (Path existing : segments) {
+            if (sequenceOf(existing) >= replayFrom)
+                replaySegment(existing, heldBack);
+        }
+
+        segmentSequence = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+        segment = openSegment(segmentSequence);
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "xox-move-log");
+        writer.setDaemon(true);
+        writer.start();
+        manager.setMoveLog(this);
+        manager.addEventListener(this);
+
+        // Bot replies missing from the log are played, and logged, now that the log is open.
+        manager.resumeBotTurns();
+    }
+
+    /**
+     * Stops logging. Events appended so far are written and forced to disk before the log is closed.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        manager.removeEventListener(this);
+        manager.setMoveLog(null);
+        closed = true;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null && segment.isOpen()) {
+            segment.force(true);
+            segment.close();
+        }
+    }
+
+    /**
+     * Closes the current segment and continues in a new one. All events issued before the call are in earlier
+     * segments, all events of earlier segments were issued before the call returned.
+     *
+     * @return the sequence number of the new segment.
+     */
+    public long startNewSegment() {
+        synchronized (rollLock) {
+            if (closed)
+                throw new RuntimeException("Move log is closed.");
+            long request = ++rollRequests;
+            LockSupport.unpark(writer);
+            while (rollsDone < request) {
+                if (failure != null)
+                    throw new RuntimeException("Move log is unavailable.", failure);
+                try {
+                    rollLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for the move log.");
+                }
+            }
+            return rolledSequence;
+        }
+    }
+
+    /**
+     * Deletes all segments with a sequence number lower than the provided one, e.g. once they are covered by a
+     * snapshot.
+     */
+    public void deleteSegmentsBefore(long sequence) throws IOException {
+        for (Path existing : listSegments()) {
+            if (sequenceOf(existing) < sequence)
+                Files.deleteIfExists(existing);
+        }
+    }
+
+    /**
+     * Tells whether events are still logged. The manager rejects state changes while the log is unavailable, as they
+     * would not survive a restart.
+     *
+     * @return false once the log is closed or failed to write a frame.
+     */
+    public boolean isAvailable() {
+        return !closed && failure == null;
+    }
+
+    /**
+     * @return the directory holding the log segments.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the amount of events restored on startup.
+     */
+    public long getReplayedEventCount() {
+        return replayedEvents;
+    }
+
+    /**
+     * @return the amount of events appended since startup, including events not yet durable.
+     */
+    public long getAppendedEventCount() {
+        return sealedEvents + eventsOf(active.state.get());
+    }
+
+    /**
+     * @return the amount of events that were applied, but not logged because the log was unavailable.
+     */
+    public long getLostEventCount() {
+        return lost.sum();
+    }
+
+    @Override
+    public void onGameCreated(long gameId, XoxGame game) {
+        Player first = game.getPlayerInfo(0);
+        Player second = game.getPlayerInfo(1);
+        byte[][] strings = {encode(first.getName()), encode(first.getPreferredColour()),
+                encode(second.getName()), encode(second.getPreferredColour())};
+        int botMask = game.getBotMask();
+        int size = botMask == 0 ? 12 : 13;
+        for (byte[] string : strings)
+            size += 2 + string.length;
+
+        // Everything after type and game id is encoded up front, so the record is only copied into the batch.
+        BoardSnapshot board = game.getBoard();
+        ByteBuffer details = ByteBuffer.allocate(size - 9);
+        details.put((byte) board.getWidth()).put((byte) board.getHeight()).put((byte) board.getLineLength());
+        for (byte[] string : strings)
+            details.putShort((short) string.length).put(string);
+        if (botMask != 0)
+            details.put((byte) botMask);
+        awaitDurable(append(botMask == 0 ? CREATE : CREATE_WITH_BOTS, gameId, 0, 0, details.array()));
+    }
+
+    @Override
+    public void onMoveApplied(long gameId, int cell, int playerIndex) {
+        awaitDurable(append(MOVE, gameId, cell, playerIndex, null));
+    }
+
+    @Override
+    public void onGameFinished(long gameId, Ranking ranking) {
+
+        // The end of a game follows from its moves, nothing to log.
+    }
+
+    @Override
+    public void onGameRemoved(long gameId) {
+        awaitDurable(append(REMOVE, gameId, 0, 0, null));
+    }
+
+    /**
+     * Encodes a record into the active batch. Waits for the writer only if the batch is full.
+     *
+     * @param cell        as the claimed cell of a MOVE record.
+     * @param playerIndex as the moving player of a MOVE record.
+     * @param details     as the encoded fields following the game id of a creation record, null for other records.
+     * @return the batch holding the record, or null if the log is unavailable and the record was dropped.
+     */
+    private Batch append(byte type, long gameId, int cell, int playerIndex, byte[] details) {
+        int size = type == MOVE ? MOVE_BYTES : type == REMOVE ? REMOVE_BYTES : 9 + details.length;
+        boolean interrupted = false;
+        try {
+            while (true) {
+                if (!isAvailable()) {
+                    lost.increment();
+                    return null;
+                }
+                Batch batch = active;
+                int offset = batch.reserve(size);
+                if (offset >= 0) {
+                    ByteBuffer buffer = batch.buffer;
+                    buffer.put(offset, type).putLong(offset + 1, gameId);
+                    if (type == MOVE) {
+                        buffer.putShort(offset + 9, (short) cell).put(offset + 11, (byte) playerIndex);
+                    } else if (details != null) {
+                        for (int i = 0; i < details.length; i++)
+                            buffer.put(offset + 9 + i, details[i]);
+                    }
+                    batch.committed.addAndGet(size);
+
+                    // The writer only parks while the batch is empty, so it needs a wake up for the first event only.
+                    if (offset == 0)
+                        LockSupport.unpark(writer);
+                    return batch;
+                }
+
+                // The batch is full or sealed. Retry in its successor once the writer replaced it.
+                LockSupport.unpark(writer);
+                try {
+                    batch.replaced.await();
+                } catch (InterruptedException e) {
+
+                    // The event itself is already applied, so it must still be logged.
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until the frame holding an event is written, if the log runs in sync mode. The event itself is already
+     * applied, so an interrupt only ends the wait and a failed frame is only counted, see getLostEventCount.
+     */
+    private void awaitDurable(Batch batch) {
+        if (!sync || batch == null)
+            return;
+        try {
+            batch.durable.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Body of the writer thread. Replaces the active batch, writes the sealed one as a frame and releases the threads
+     * waiting for it. Also performs requested segment changes, after writing all events issued before the request.
+     */
+    private void writeLoop() {
+        while (true) {
+            Batch batch = active;
+            long requestedRolls = rollRequests;
+            if ((batch.state.get() & BYTES_MASK) == 0 && requestedRolls == rollsDone) {
+                if (!closed) {
+                    LockSupport.park(this);
+                    continue;
+                }
+
+                // Seal the last batch, so no event is appended once the writer stopped. A racing event is written.
+                if ((batch.seal() & BYTES_MASK) == 0) {
+                    batch.release();
+                    return;
+                }
+            }
+
+            active = new Batch(spare);
+            long sealed = batch.seal();
+            sealedEvents += eventsOf(sealed);
+            batch.replaced.countDown();
+            int bytes = (int) (sealed & BYTES_MASK);
+
+            // Threads that reserved room may still be encoding. Their records are a few bytes, so spin.
+            while (batch.committed.get() < bytes)
+                Thread.yield();
+
+            try {
+                if (bytes > 0)
+                    writeFrame(batch.buffer, bytes);
+                if (requestedRolls > rollsDone)
+                    rollSegment();
+            } catch (IOException e) {
+                fail(e, batch, sealed);
+                return;
+            }
+            spare = batch.buffer;
+            batch.durable.countDown();
+            if (requestedRolls > rollsDone) {
+                synchronized (rollLock) {
+                    rollsDone = requestedRolls;
+                    rolledSequence = segmentSequence;
+                    rollLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns the log unavailable after a write failed. Counts the events of the failed frame and of the active batch
+     * as lost and releases all threads waiting for either.
+     */
+    private void fail(IOException e, Batch failed, long failedState) {
+        failure = e;
+        lost.add(eventsOf(failedState));
+        failed.release();
+
+        Batch last = active;
+        lost.add(eventsOf(last.seal()));
+        last.release();
+        synchronized (rollLock) {
+            rollLock.notifyAll();
+        }
+    }
+
+    private static long eventsOf(long state) {
+        return (state & ~SEALED) >>> 32;
+    }
+
+    private void writeFrame(ByteBuffer payload, int bytes) throws IOException {
+        payload.limit(bytes).position(0);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        frameHeader.clear();
+        frameHeader.putInt(bytes).putInt((int) crc.getValue()).flip();
+        frame[0] = frameHeader;
+        frame[1] = payload;
+        while (payload.hasRemaining())
+            segment.write(frame);
+        segment.force(false);
+        if (segment.position() >= segmentBytes)
+            rollSegment();
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(true);
+        segment.close();
+        segment = openSegment(++segmentSequence);
+    }
+
+    private FileChannel openSegment(long sequence) throws IOException {
+        return FileChannel.open(directory.resolve(segmentName(sequence)), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Replays all complete, intact frames of a segment into the manager.
+     */
+    private void replaySegment(Path file, Map<Long, List<Integer>> heldBack) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= FRAME_HEADER_BYTES) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining())
+                return;
+            ByteBuffer payload = data.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum)
+                return;
+            data.position(data.position() + length);
+
+            while (payload.hasRemaining()) {
+                replayRecord(payload, heldBack);
+                replayedEvents++;
+            }
+        }
+    }
+
+    private void replayRecord(ByteBuffer payload, Map<Long, List<Integer>> heldBack) {
+        byte type = payload.get();
+        long gameId = payload.getLong();
+        switch (type) {
+            case CREATE:
+            case CREATE_WITH_BOTS:
+                int width = payload.get();
+                int height = payload.get();
+                int lineLength = payload.get();
+                LinkedList<Player> players = new LinkedList<>();
+                players.add(new Player(decode(payload), decode(payload)));
+                players.add(new Player(decode(payload), decode(payload)));
+                XoxInitSettings settings = new XoxInitSettings(players, players.getFirst().getName());
+                settings.setWidth(width);
+                settings.setHeight(height);
+                settings.setLineLength(lineLength);
+                if (type == CREATE_WITH_BOTS) {
+                    int botMask = payload.get();
+                    for (int player = 0; player < 2; player++)
+                        if ((botMask & (1 << player)) != 0)
+                            settings.getBots().add(players.get(player).getName());
+                }
+                manager.getSessions().put(gameId, new GameSession(XoxManagerImpl.createGame(settings)));
+                break;
+            case MOVE:
+                int cell = payload.getShort();
+                int playerIndex = payload.get();
+                replayMove(gameId, cell, playerIndex, heldBack);
+                break;
+            case REMOVE:
+                manager.getSessions().remove(gameId);
+                heldBack.remove(gameId);
+                break;
+            default:
+                throw new RuntimeException("Move log is corrupt, unknown record type " + type);
+        }
+    }
+
+    private void replayMove(long gameId, int cell, int playerIndex, Map<Long, List<Integer>> heldBack) {
+        GameSession session = manager.getSessions().get(gameId);
+        if (session == null)
+            return;
+        int status = session.game.claimCell(cell, playerIndex);
+        if (status == MoveStatus.NOT_YOUR_TURN) {
+            List<Integer> moves = heldBack.get(gameId);
+            if (moves == null) {
+                moves = new ArrayList<>();
+                heldBack.put(gameId, moves);
+            }
+            moves.add((cell << 1) | playerIndex);
+            return;
+        }
+
+        // The turn passed, a held back move of the game may apply now.
+        List<Integer> moves = heldBack.get(gameId);
+        if (status != MoveStatus.APPLIED || moves == null)
+            return;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (session.game.claimCell(move >>> 1, move & 1) == MoveStatus.APPLIED) {
+                moves.remove(i);
+                i = -1;
+            }
+        }
+        if (moves.isEmpty())
+            heldBack.remove(gameId);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream)
+                segments.add(file);
+        }
+
+        // Sequence numbers are zero padded, so the names sort in sequence order.
+        Collections.sort(segments);
+        return segments;
+    }
+
+    static String segmentName(long sequence) {
+        return String.format("%s%019d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(String string) {
+        byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+            throw new RuntimeException("Player details exceed the move log record size.");
+        return bytes;
+    }
+
+    private static String decode(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getShort()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Events collected for one frame, in one of the two buffers.
+     */
+    private static final class Batch {
+        final ByteBuffer buffer;
+
+        // Sealed flag, amount of events and amount of bytes reserved, see SEALED.
+        final AtomicLong state = new AtomicLong();
+
+        // Amount of bytes whose encoding is complete.
+        final AtomicLong committed = new AtomicLong();
+
+        // Released once the writer installed the next batch, and once this batch is written or failed.
+        final CountDownLatch replaced = new CountDownLatch(1);
+        final CountDownLatch durable = new CountDownLatch(1);
+
+        Batch(ByteBuffer buffer) {
+            this.buffer = buffer;
+            buffer.clear();
+        }
+
+        /**
+         * Reserves room for a record.
+         *
+         * @return the offset of the reserved room, or -1 if the batch is sealed or lacks room.
+         */
+        int reserve(int size) {
+            while (true) {
+                long current = state.get();
+                if ((current & SEALED) != 0 || (current & BYTES_MASK) + size > buffer.capacity())
+                    return -1;
+                if (state.compareAndSet(current, current + EVENT + size))
+                    return (int) (current & BYTES_MASK);
+            }
+        }
+
+        /**
+         * Prevents further reservations.
+         *
+         * @return the final state, without the sealed flag.
+         */
+        long seal() {
+            while (true) {
+                long current = state.get();
+                if ((current & SEALED) != 0 || state.compareAndSet(current, current | SEALED))
+                    return current & ~SEALED;
+            }
+        }
+
+        void release() {
+            replaced.countDown();
+            durable.countDown();
+        }
+    }
+}
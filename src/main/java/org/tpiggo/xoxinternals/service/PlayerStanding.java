@@ -0,0 +1,74 @@
+package org.tpiggo.xoxinternals.service;
+
+/**
+ * Immutable leaderboard entry of a player. Aggregates the results of all finished games the player took part in.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class PlayerStanding {
+
+    private final String name;
+    private final int wins;
+    private final int losses;
+    private final int draws;
+    private final double rating;
+    private final int rank;
+
+    PlayerStanding(String name, int wins, int losses, int draws, double rating, int rank) {
+        this.name = name;
+        this.wins = wins;
+        this.losses = losses;
+        this.draws = draws;
+        this.rating = rating;
+        this.rank = rank;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    /**
+     * @return the Elo rating of the player, rounded to an integer.
+     */
+    public int getRating() {
+        return (int) Math.round(rating);
+    }
+
+    /**
+     * @return the position of the player on the leaderboard, starting at 1. Players of equal (rounded) rating share a
+     * rank. 0 if the standing was not obtained through a leaderboard query.
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    double getExactRating() {
+        return rating;
+    }
+
+    PlayerStanding withResult(int winsAdded, int lossesAdded, int drawsAdded, double ratingChange) {
+        return new PlayerStanding(name, wins + winsAdded, losses + lossesAdded, draws + drawsAdded,
+                rating + ratingChange, 0);
+    }
+
+    PlayerStanding withRank(int rank) {
+        return new PlayerStanding(name, wins, losses, draws, rating, rank);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + getRating() + " (" + wins + "/" + losses + "/" + draws + ")";
+    }
+}
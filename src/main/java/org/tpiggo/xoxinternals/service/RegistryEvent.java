@@ -0,0 +1,39 @@
+package org.tpiggo.xoxinternals.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for an access to the game registry of the Xox manager: lookup, insertion or removal of a
+ * game. Lookups are the first step of every request, so a slow lookup (a segment locked by a resize) delays the whole
+ * request. Disabled by default, since lookups are by far the most frequent event: even below the threshold every
+ * event takes two timestamps. Enable it in the recording settings when chasing lookup stalls.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Name("org.tpiggo.xox.Registry")
+@Label("Game Registry Access")
+@Category("Xox")
+@Description("Lookup, insertion or removal of a game in the registry.")
+@Enabled(false)
+@StackTrace(false)
+@Threshold("20 us")
+final class RegistryEvent extends Event {
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("Operation")
+    @Description("LOOKUP, INSERT or REMOVE.")
+    String operation;
+
+    @Label("Outcome")
+    @Description("HIT or MISS for lookups, DONE or ID_TAKEN for insertions, DONE or MISS for removals.")
+    String outcome;
+}
@@ -0,0 +1,38 @@
+package org.tpiggo.xoxinternals.service;
+
+/**
+ * Rules deciding how long games stay resident in memory. A value of 0 disables the respective rule.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class RetentionPolicy {
+
+    private final long finishedTtlMillis;
+    private final long idleTimeoutMillis;
+    private final int maxResidentGames;
+
+    /**
+     * @param finishedTtlMillis as the time a finished game is kept, counted from when the game is first seen finished.
+     * @param idleTimeoutMillis as the time a game is kept without any access, finished or not.
+     * @param maxResidentGames  as the maximum amount of resident games. Least recently used games are evicted first.
+     */
+    public RetentionPolicy(long finishedTtlMillis, long idleTimeoutMillis, int maxResidentGames) {
+        if (finishedTtlMillis < 0 || idleTimeoutMillis < 0 || maxResidentGames < 0)
+            throw new RuntimeException("Retention limits must not be negative.");
+        this.finishedTtlMillis = finishedTtlMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxResidentGames = maxResidentGames;
+    }
+
+    public long getFinishedTtlMillis() {
+        return finishedTtlMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public int getMaxResidentGames() {
+        return maxResidentGames;
+    }
+}
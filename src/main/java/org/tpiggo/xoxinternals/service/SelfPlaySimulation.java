@@ -0,0 +1,187 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test harness that plays complete games against a XoxManager, without HTTP in the loop. Every game is created,
+ * played and removed through the manager API, exactly like a remote client would: a player polls its actions (built
+ * by the XoxActionGenerator), selects one and submits its index (resolved and applied by the XoxActionInterpreter and
+ * the atomic claim, which also detects the end of the game). Solver driven players additionally ask for hints. The
+ * measured throughput therefore includes the full service layer cost of every move.
+ * <p>
+ * Games are spread over a fixed amount of worker threads. Run from the command line with
+ * [games] [threads] [first player strategy] [second player strategy] [width] [height] [line length], all optional.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class SelfPlaySimulation {
+
+    /**
+     * How a simulated player selects its moves.
+     */
+    public enum Strategy {
+
+        // Uniformly random among the offered actions.
+        RANDOM,
+
+        // The best move according to the hints of the manager. Perfect play on 3x3 boards.
+        SOLVER
+    }
+
+    private final XoxManager manager;
+    private final int threads;
+
+    /**
+     * @param manager as the manager to play against.
+     * @param threads as the amount of concurrently playing worker threads.
+     */
+    public SelfPlaySimulation(XoxManager manager, int threads) {
+        if (threads < 1)
+            throw new RuntimeException("Simulation needs at least one thread.");
+        this.manager = manager;
+        this.threads = threads;
+    }
+
+    /**
+     * Plays games until the requested amount is complete. Blocks until all workers are done.
+     *
+     * @param games       as the amount of games to play.
+     * @param first       as the strategy of the start player.
+     * @param second      as the strategy of the second player.
+     * @param width       as the amount of columns of the board.
+     * @param height      as the amount of rows of the board.
+     * @param lineLength  as the amount of cells in a line required to win.
+     * @return throughput and result distribution of the played games.
+     */
+    public SimulationResult run(long games, final Strategy first, final Strategy second, final int width,
+                                final int height, final int lineLength) throws InterruptedException {
+        final AtomicLong remaining = new AtomicLong(games);
+        final LongAdder moves = new LongAdder();
+        final LongAdder firstPlayerWins = new LongAdder();
+        final LongAdder secondPlayerWins = new LongAdder();
+        final LongAdder draws = new LongAdder();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int created;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xox-simulation-" + created++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long start = System.nanoTime();
+        try {
+            Future<?>[] results = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                results[i] = workers.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        Player[] players = {new Player("first", "#FF0000"), new Player("second", "#0000FF")};
+                        Strategy[] strategies = {first, second};
+                        while (remaining.getAndDecrement() > 0) {
+                            int winner = playGame(players, strategies, width, height, lineLength, moves);
+                            if (winner == 0)
+                                firstPlayerWins.increment();
+                            else if (winner == 1)
+                                secondPlayerWins.increment();
+                            else
+                                draws.increment();
+                        }
+                    }
+                });
+            }
+            for (Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Simulated game failed.", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long duration = System.nanoTime() - start;
+        long played = firstPlayerWins.sum() + secondPlayerWins.sum() + draws.sum();
+        return new SimulationResult(played, moves.sum(), firstPlayerWins.sum(), secondPlayerWins.sum(), draws.sum(),
+                duration);
+    }
+
+    /**
+     * Plays one game from creation to removal.
+     *
+     * @return the index of the winner, -1 for a draw.
+     */
+    private int playGame(Player[] players, Strategy[] strategies, int width, int height, int lineLength,
+                         LongAdder moves) {
+        LinkedList<Player> seating = new LinkedList<>();
+        seating.add(players[0]);
+        seating.add(players[1]);
+        XoxInitSettings settings = new XoxInitSettings(seating, players[0].getName());
+        settings.setWidth(width);
+        settings.setHeight(height);
+        settings.setLineLength(lineLength);
+        long gameId = manager.addGame(settings);
+
+        try {
+            int mover = 0;
+            while (true) {
+                String name = players[mover].getName();
+                XoxClaimFieldAction[] actions = manager.getActions(gameId, name);
+                if (actions == null || actions.length == 0)
+                    break;
+                int action = selectAction(gameId, actions, strategies[mover], width);
+                int status = manager.performAction(gameId, name, action);
+                if (status != MoveStatus.APPLIED)
+                    throw new RuntimeException("Simulated move was rejected: " + MoveStatus.nameOf(status));
+                moves.increment();
+                mover = 1 - mover;
+            }
+
+            Ranking ranking = manager.getRanking(gameId);
+            if (ranking.getScoresDescending()[0] == 0)
+                return -1;
+            return ranking.getPlayersDescending()[0].getName().equals(players[0].getName()) ? 0 : 1;
+        } finally {
+            manager.removeGame(gameId);
+        }
+    }
+
+    private int selectAction(long gameId, XoxClaimFieldAction[] actions, Strategy strategy, int width) {
+        if (strategy == Strategy.SOLVER) {
+            int[] hints = manager.getHints(gameId);
+            if (hints != null && hints.length > 0) {
+                int cell = hints[ThreadLocalRandom.current().nextInt(hints.length)];
+                for (int i = 0; i < actions.length; i++)
+                    if (actions[i].getY() * width + actions[i].getX() == cell)
+                        return i;
+            }
+        }
+        return ThreadLocalRandom.current().nextInt(actions.length);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Strategy first = args.length > 2 ? Strategy.valueOf(args[2].toUpperCase()) : Strategy.RANDOM;
+        Strategy second = args.length > 3 ? Strategy.valueOf(args[3].toUpperCase()) : Strategy.RANDOM;
+        int width = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        int height = args.length > 5 ? Integer.parseInt(args[5]) : 3;
+        int lineLength = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+
+        SelfPlaySimulation simulation = new SelfPlaySimulation(XoxManagerImpl.getInstance(), threads);
+        System.out.println(simulation.run(games, first, second, width, height, lineLength));
+    }
+}
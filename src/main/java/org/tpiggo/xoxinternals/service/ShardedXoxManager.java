@@ -0,0 +1,290 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.GameHistory;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-writer execution mode for the Xox manager. Every game id is hashed to one of N shards, each owning a single
+ * thread and a mailbox. All mutations of a game (creation, actions, removal) are queued to its shard and executed
+ * there one after another, so no two threads ever modify the same game. Reads do not pass the mailboxes, they are
+ * served from the immutable snapshots published by the underlying manager. Moves chosen asynchronously by a bot
+ * strategy are queued to the owning shard as well.
+ * <p>
+ * Enabled with the property xox.execution.mode=sharded. The shard count is set with xox.execution.shards and defaults
+ * to one shard per available core.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "xox.execution.mode", havingValue = "sharded")
+public class ShardedXoxManager implements XoxManager, GameExecutor {
+
+    private final XoxManagerImpl delegate;
+    private final ThreadPoolExecutor[] shards;
+
+    /**
+     * Creates a sharded manager on top of a regular manager instance.
+     *
+     * @param delegate   as the manager holding the game registry.
+     * @param shardCount as the amount of shard threads. Values below 1 select one shard per available core.
+     */
+    public ShardedXoxManager(XoxManagerImpl delegate, @Value("${xox.execution.shards:0}") int shardCount) {
+        this.delegate = delegate;
+        if (shardCount < 1)
+            shardCount = Runtime.getRuntime().availableProcessors();
+
+        shards = new ThreadPoolExecutor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            final String threadName = "xox-shard-" + i;
+            shards[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, threadName);
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        delegate.setGameExecutor(this);
+    }
+
+    /**
+     * @return the amount of shards games are distributed over.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Tells how many mutations are waiting in the mailbox of a shard.
+     *
+     * @param shard as the shard index. Range: [0-shardCount)
+     * @return the amount of queued, not yet started mutations.
+     */
+    public int getQueueDepth(int shard) {
+        return shards[shard].getQueue().size();
+    }
+
+    /**
+     * @return the mailbox depth of every shard, indexed by shard.
+     */
+    public int[] getQueueDepths() {
+        int[] depths = new int[shards.length];
+        for (int i = 0; i < shards.length; i++)
+            depths[i] = getQueueDepth(i);
+        return depths;
+    }
+
+    /**
+     * Resolves the shard owning a game.
+     */
+    int shardOf(long gameId) {
+        long hash = gameId * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 32) % shards.length);
+    }
+
+    @Override
+    public Collection<Long> getGames() {
+        return delegate.getGames();
+    }
+
+    @Override
+    public void removeGame(final long gameId) {
+        runOnShard(gameId, new Callable<Void>() {
+            @Override
+            public Void call() {
+                delegate.removeGame(gameId);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public long addGame(final XoxInitSettings initSettings) {
+
+        // The id must be known up front, to pick the shard that creates the game.
+        while (true) {
+            final long gameId = XoxManagerImpl.generateGameId();
+            Boolean added = runOnShard(gameId, new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return delegate.addGame(gameId, initSettings);
+                }
+            });
+            if (added == null)
+                throw new RuntimeException("Interrupted while waiting for game creation.");
+            if (added)
+                return gameId;
+        }
+    }
+
+    @Override
+    public BoardReadOnly getBoard(long gameId) {
+        return delegate.getBoard(gameId);
+    }
+
+    @Override
+    public Player[] getPlayers(long gameId) {
+        return delegate.getPlayers(gameId);
+    }
+
+    @Override
+    public XoxClaimFieldAction[] getActions(long gameId, String player) {
+        return delegate.getActions(gameId, player);
+    }
+
+    @Override
+    public int performAction(final long gameId, final String player, final int actionIndex) {
+        Integer status = runOnShard(gameId, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return delegate.performAction(gameId, player, actionIndex);
+            }
+        });
+        return status == null ? MoveStatus.UNAVAILABLE : status;
+    }
+
+    /**
+     * Batch variant of performAction. Moves are grouped by shard and every shard receives its group as one mailbox
+     * entry, so a batch costs one queue hand-off per involved shard rather than one per move. Shards process their
+     * groups in parallel, each in submission order, so moves on the same game keep their relative order.
+     *
+     * @return the MoveStatus code of every move, in submission order. Moves of shards the calling thread stopped
+     * waiting for, because it was interrupted, are reported as MoveStatus.UNAVAILABLE. They may still be applied.
+     */
+    @Override
+    public int[] performActions(final long[] gameIds, final String[] players, final int[] actionIndexes) {
+        XoxManagerImpl.checkBatch(gameIds, players, actionIndexes);
+        final int[] statuses = new int[gameIds.length];
+
+        // Bucket the moves by shard. A counting sort keeps the submission order within every bucket.
+        final int[] bounds = new int[shards.length + 1];
+        int[] shardOfMove = new int[gameIds.length];
+        for (int move = 0; move < gameIds.length; move++) {
+            shardOfMove[move] = shardOf(gameIds[move]);
+            bounds[shardOfMove[move] + 1]++;
+        }
+        for (int shard = 0; shard < shards.length; shard++)
+            bounds[shard + 1] += bounds[shard];
+        final int[] order = new int[gameIds.length];
+        int[] fill = bounds.clone();
+        for (int move = 0; move < gameIds.length; move++)
+            order[fill[shardOfMove[move]]++] = move;
+
+        // Hand every non-empty bucket to its shard, then wait for all of them.
+        Future<?>[] pending = new Future<?>[shards.length];
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (bounds[shard] == bounds[shard + 1])
+                continue;
+            final int from = bounds[shard];
+            final int to = bounds[shard + 1];
+            pending[shard] = shards[shard].submit(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.applyBatch(gameIds, players, actionIndexes, order, from, to, statuses);
+                }
+            });
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (pending[shard] == null)
+                continue;
+            try {
+                pending[shard].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (int position = bounds[shard]; position < bounds[shard + 1]; position++)
+                    statuses[order[position]] = MoveStatus.UNAVAILABLE;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return statuses;
+    }
+
+    @Override
+    public Ranking getRanking(long gameId) {
+        return delegate.getRanking(gameId);
+    }
+
+    @Override
+    public int[] getHints(long gameId) {
+        return delegate.getHints(gameId);
+    }
+
+    @Override
+    public GameHistory getHistory(long gameId) {
+        return delegate.getHistory(gameId);
+    }
+
+    @Override
+    public long exportHistories(WritableByteChannel target) throws IOException {
+        return delegate.exportHistories(target);
+    }
+
+    /**
+     * Stops all shard threads. Mutations already queued are still executed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        delegate.setGameExecutor(null);
+        for (ThreadPoolExecutor shard : shards)
+            shard.shutdown();
+    }
+
+    /**
+     * Queues a mutation to the mailbox of the shard owning a game, without waiting for it. Dropped once the shards
+     * are shut down.
+     */
+    @Override
+    public void execute(long gameId, Runnable mutation) {
+        try {
+            shards[shardOf(gameId)].execute(mutation);
+        } catch (RejectedExecutionException e) {
+
+            // The shards are shut down, so is the manager. Nothing to apply the mutation to.
+        }
+    }
+
+    /**
+     * Queues a mutation to the mailbox of the shard owning a game and waits for its result. Runtime exceptions of the
+     * mutation are rethrown on the calling thread, as if the mutation had been executed there.
+     *
+     * @return the result of the mutation, or null if the calling thread was interrupted while waiting.
+     */
+    private <T> T runOnShard(long gameId, Callable<T> mutation) {
+        try {
+            return shards[shardOf(gameId)].submit(mutation).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
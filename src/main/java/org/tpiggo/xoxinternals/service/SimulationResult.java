@@ -0,0 +1,70 @@
+package org.tpiggo.xoxinternals.service;
+
+/**
+ * Outcome of a self-play simulation run: throughput and the distribution of game results.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class SimulationResult {
+
+    private final long games;
+    private final long moves;
+    private final long firstPlayerWins;
+    private final long secondPlayerWins;
+    private final long draws;
+    private final long durationNanos;
+
+    SimulationResult(long games, long moves, long firstPlayerWins, long secondPlayerWins, long draws,
+                     long durationNanos) {
+        this.games = games;
+        this.moves = moves;
+        this.firstPlayerWins = firstPlayerWins;
+        this.secondPlayerWins = secondPlayerWins;
+        this.draws = draws;
+        this.durationNanos = durationNanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getFirstPlayerWins() {
+        return firstPlayerWins;
+    }
+
+    public long getSecondPlayerWins() {
+        return secondPlayerWins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public double getGamesPerSecond() {
+        return durationNanos == 0 ? 0 : games * 1e9 / durationNanos;
+    }
+
+    public double getMovesPerSecond() {
+        return durationNanos == 0 ? 0 : moves * 1e9 / durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games, %d moves in %.3f s: %.0f games/s, %.0f moves/s. "
+                        + "First player won %.2f%%, second player won %.2f%%, draws %.2f%%.",
+                games, moves, durationNanos / 1e9, getGamesPerSecond(), getMovesPerSecond(),
+                percentage(firstPlayerWins), percentage(secondPlayerWins), percentage(draws));
+    }
+
+    private double percentage(long count) {
+        return games == 0 ? 0 : 100.0 * count / games;
+    }
+}
@@ -1,23 +1,33 @@
 package org.tpiggo.xoxinternals.service;
 
-import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.Board;
+import org.tpiggo.xoxinternals.model.BoardSnapshot;
 import org.tpiggo.xoxinternals.model.Player;
 import org.tpiggo.xoxinternals.model.XoxGame;
 import org.tpiggo.xoxinternals.model.XoxGameReadOnly;
 
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * Analyzes a Xox game and generates a collection of valid actions for a player.
+ * Analyzes a Xox game and generates a collection of valid actions for a player. Actions are identified by the index of
+ * the cell they claim (y * width + x), so ids are stable and need no hashing.
  *
  * @author Maximilian Schiedermeier
  */
 public class XoxActionGenerator implements ActionGenerator {
 
+    // Shared empty result, handed out whenever a player has no actions.
+    static final XoxClaimFieldAction[] NO_ACTIONS = new XoxClaimFieldAction[0];
+
+    // Action ids for all cells of the largest supported board, so ids are never built at runtime.
+    private static final String[] ACTION_IDS = new String[Board.MAX_SIZE * Board.MAX_SIZE];
+
+    static {
+        for (int cell = 0; cell < ACTION_IDS.length; cell++)
+            ACTION_IDS[cell] = Integer.toString(cell);
+    }
+
     /**
      * Verifies if a provided player is a valid participant (player) of a Xox game. The verification runs a case
      * sensitive string comparison of the player names.
@@ -32,45 +42,107 @@ public class XoxActionGenerator implements ActionGenerator {
     }
 
     /**
-     * Iterates over all cells of a provided Xox-Board and creates an action object for every unoccupied cell.
+     * Tells whether a player may currently act in a game: must be a participant, the game must be running and it must
+     * be the player's turn.
+     */
+    private static boolean mayAct(XoxGame game, Player player) {
+
+        // Non participants (observers) never have actions.
+        if (player == null || !isParticipant(game, player))
+            return false;
+
+        // If the game is already over, no actions are left.
+        if (game.isFinished())
+            return false;
+
+        // Only the current player has actions. (Check is performed by comparing the name of the current player)
+        return player.getName().equalsIgnoreCase(game.getCurrentPlayerName());
+    }
+
+    /**
+     * Resolves the stable id of the action that claims a cell.
      *
-     * @param board as the 3x3 grid to be analyzed.
-     * @return an array of possible lay actions.
-     * @throws LogicException in case one of the resulting player actions could not be correctly created.
+     * @param cell as the cell index, y * width + x.
+     * @return the id of the action, the decimal representation of the cell index.
+     */
+    public static String actionId(int cell) {
+        return ACTION_IDS[cell];
+    }
+
+    /**
+     * Verifies and casts the game type.
      */
-    private static Map<String, XoxClaimFieldAction> emptyCellsToActions(BoardReadOnly board, Player player) throws LogicException {
-        Map<String, XoxClaimFieldAction> actionMap = new LinkedHashMap();
-
-        // Iterate over board
-        for (int yPos = 0; yPos < 3; yPos++) {
-            for (int xPos = 0; xPos < 3; xPos++) {
-
-                // Add an action if the position is free
-                if (board.isFree(xPos, yPos)) {
-                    XoxClaimFieldAction action = new XoxClaimFieldAction(xPos, yPos, player);
-                    String actionMd5 = actionToHash(action);
-                    actionMap.put(actionMd5, action);
-                }
+    private static XoxGame toXoxGame(XoxGameReadOnly game) throws LogicException {
+        if (game.getClass() != XoxGame.class)
+            throw new LogicException("Xox Action Generator can only handle Xox games.");
+        return (XoxGame) game;
+    }
+
+    /**
+     * Primitive variant of generateActions. Writes the indexes of all cells the player can claim into a caller-owned
+     * buffer, in ascending order. Does not allocate.
+     *
+     * @param game   as the game instance to analyze.
+     * @param player as the player for who the actions are generated.
+     * @param cells  as the target buffer. Must hold at least width * height entries.
+     * @return the amount of cell indexes written to the buffer.
+     * @throws LogicException in case the provided game type is not supported
+     */
+    public int generateActionCells(XoxGameReadOnly game, Player player, int[] cells) throws LogicException {
+        XoxGame xoxGame = toXoxGame(game);
+        if (!mayAct(xoxGame, player))
+            return 0;
+
+        // Iterate over the free cell bitset of the current board snapshot.
+        BoardSnapshot board = xoxGame.getBoard();
+        int count = 0;
+        for (int word = 0; word < board.freeCellWordCount(); word++) {
+            long freeCells = board.freeCellWord(word);
+            while (freeCells != 0) {
+                cells[count++] = (word << 6) + Long.numberOfTrailingZeros(freeCells);
+                freeCells &= freeCells - 1;
             }
         }
-        return actionMap;
+        return count;
     }
 
     /**
-     * Computes a unique MD5 checksum based on the string representation of an action object. See:
-     * https://stackoverflow.com/a/5470263
+     * Array variant of generateActions, operating on the preallocated actions of a game. The returned array is shared
+     * by all callers asking for the same board version and must not be modified.
      *
-     * @param action
+     * @param game    as the game instance to analyze.
+     * @param player  as the player for who the actions are generated.
+     * @param actions as the preallocated actions of the game.
+     * @return the actions available to the player, ordered by cell index.
+     * @throws LogicException in case the provided game type is not supported
      */
-    private static String actionToHash(XoxClaimFieldAction action) {
-
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] md5sum = md.digest(action.toString().getBytes());
-            return String.format("%032X", new BigInteger(1, md5sum));
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 hashing not supported.");
+    XoxClaimFieldAction[] generateActionArray(XoxGameReadOnly game, Player player, ClaimActionTable actions)
+            throws LogicException {
+        XoxGame xoxGame = toXoxGame(game);
+        if (!mayAct(xoxGame, player))
+            return NO_ACTIONS;
+
+        int playerIndex = xoxGame.isFirstPlayer(player) ? 0 : 1;
+        BoardSnapshot board = xoxGame.getBoard();
+        XoxClaimFieldAction[] offered = actions.getOffered(playerIndex, board.getVersion());
+        if (offered != null)
+            return offered;
+
+        int count = 0;
+        for (int word = 0; word < board.freeCellWordCount(); word++)
+            count += Long.bitCount(board.freeCellWord(word));
+
+        offered = new XoxClaimFieldAction[count];
+        int index = 0;
+        for (int word = 0; word < board.freeCellWordCount(); word++) {
+            long freeCells = board.freeCellWord(word);
+            while (freeCells != 0) {
+                offered[index++] = actions.get(playerIndex, (word << 6) + Long.numberOfTrailingZeros(freeCells));
+                freeCells &= freeCells - 1;
+            }
         }
+        actions.setOffered(playerIndex, board.getVersion(), offered);
+        return offered;
     }
 
     /**
@@ -78,30 +150,19 @@ public class XoxActionGenerator implements ActionGenerator {
      * @param player as the player object defining the participant for why tha action bundle shall be created. Can be
      *               null, if en empty actions set must be generated for an observer who does not actively participate
      *               in the game.
-     * @return Map translating from unique action identifiers to the actual actions.
+     * @return Map translating from stable action identifiers (cell indexes) to the actual actions.
      */
     @Override
     public Map<String, XoxClaimFieldAction> generateActions(XoxGameReadOnly game, Player player) throws LogicException {
 
-        // Verify and cast the game type
-        if (game.getClass() != XoxGame.class)
-            throw new LogicException("Xox Action Generator can only handle Xox games.");
-        XoxGame xoxGame = (XoxGame) game;
-
-        // Non participants (observers) always receive an empty action bundle.
-        if (player == null || !isParticipant(xoxGame, player))
-            return new LinkedHashMap<>();
-
-        // If the game is already over, return an empty set
-        if (xoxGame.isFinished())
-            return new LinkedHashMap<>();
+        XoxGame xoxGame = toXoxGame(game);
+        int width = xoxGame.getBoard().getWidth();
+        int[] cells = new int[width * xoxGame.getBoard().getHeight()];
+        int count = generateActionCells(xoxGame, player, cells);
 
-        // If not the player's turn, return an empty set. (Check is performed by comparing the name of the current player)
-        if (!player.getName().toLowerCase().equals(xoxGame.getCurrentPlayerName().toLowerCase()))
-            return new LinkedHashMap<>();
-
-        // Iterate over board and add an action for every unoccupied cell.
-        return emptyCellsToActions(xoxGame.getBoard(), player);
+        Map<String, XoxClaimFieldAction> actionMap = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++)
+            actionMap.put(actionId(cells[i]), new XoxClaimFieldAction(cells[i] % width, cells[i] / width, player));
+        return actionMap;
     }
 }
-
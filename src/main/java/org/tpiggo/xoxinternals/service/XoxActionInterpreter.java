@@ -1,26 +1,24 @@
 package org.tpiggo.xoxinternals.service;
 
+import org.tpiggo.xoxinternals.model.BoardSnapshot;
 import org.tpiggo.xoxinternals.model.ModelAccessException;
+import org.tpiggo.xoxinternals.model.MoveStatus;
 import org.tpiggo.xoxinternals.model.XoxGame;
 import org.tpiggo.xoxinternals.model.XoxGameReadOnly;
 
-import java.util.Collection;
-
 /**
  * Business Logic class that applies a Xox Action on a provided Xox model instance. A Xox action encodes a players
  * request to lay on a given position. The ActionInterpreter verifies that the action is legal for the provided user. If
- * this is the case the provided Xox model instance is modified as requested.
+ * this is the case the provided Xox model instance is modified as requested. Validation and application are a single
+ * atomic claim on the game, no action bundles are regenerated to validate a move.
  *
  * @author Maximilian Schiedermeier
  */
 public class XoxActionInterpreter implements ActionInterpreter {
 
-    private final XoxActionGenerator actionGenerator;
-
     private final XoxEndingAnalyzer endingAnalyzer;
 
-    public XoxActionInterpreter(XoxActionGenerator actionGenerator, XoxEndingAnalyzer endingAnalyzer) {
-        this.actionGenerator = actionGenerator;
+    public XoxActionInterpreter(XoxEndingAnalyzer endingAnalyzer) {
         this.endingAnalyzer = endingAnalyzer;
     }
 
@@ -35,34 +33,51 @@ public class XoxActionInterpreter implements ActionInterpreter {
         XoxClaimFieldAction xoxClaimFieldAction = (XoxClaimFieldAction) action;
         XoxGame xoxGame = (XoxGame) game;
 
-        // Verify the action is legit (must be included in list of actions provided by generator)
-        if (!isValidAction(game, xoxClaimFieldAction))
+        // Verify the action was built for a participant. Everything else is validated by the claim itself.
+        int playerIndex = xoxGame.getPlayerIndex(xoxClaimFieldAction.getPlayer().getName());
+        if (playerIndex < 0)
             throw new LogicException("Provided action can not be applied on game - is not a valid action.");
 
-        // Apply action on model
-        xoxGame.getBoard().occupy(xoxClaimFieldAction.getX(), xoxClaimFieldAction.getY(), xoxGame.isFirstPlayer(xoxClaimFieldAction.getPlayer()));
-
-        // Update current player
-        xoxGame.setCurrentPlayer(1-xoxGame.getCurrentPlayerIndex());
+        // Apply action on model. Validating the cell, claiming it, passing the turn and flagging a game end happen in
+        // one atomic step, so a concurrent action on the same game can not slip in between.
+        int status = xoxGame.claim(xoxClaimFieldAction.getX(), xoxClaimFieldAction.getY(), playerIndex);
+        if (status == MoveStatus.CELL_OCCUPIED)
+            throw new ModelAccessException("Requested cell can not by occupied. Game state changed concurrently.");
+        if (status != MoveStatus.APPLIED)
+            throw new LogicException("Provided action can not be applied on game - " + MoveStatus.nameOf(status));
 
         // Pass Game-Over test on model instance
         endingAnalyzer.analyzeAndUpdate(game);
     }
 
     /**
-     * Helper method verify if a specific xox action is contained in an actions bundle. The action is identified by grid
-     * position and player information.
+     * Resolves the cell claimed by an offered action, without generating any actions. Offered actions are ordered by
+     * cell index, so the selected cell is the actionIndex-th free cell of the current board. Claiming the cell then
+     * validates turn, game state and occupation in one step: if the board changed since the lookup, the turn has
+     * passed and the claim is rejected.
+     *
+     * @param game        as the game to act on.
+     * @param actionIndex as the index of the selected action in the offered actions array.
+     * @return the cell index, y * width + x, or -1 if the action index lies beyond the free cells.
      */
-    private boolean isValidAction(XoxGameReadOnly game, XoxClaimFieldAction selectedAction) throws LogicException {
-
-        // retrieve all valid actions for player
-        Collection<XoxClaimFieldAction> validActions = actionGenerator.generateActions(game, selectedAction.getPlayer()).values();
+    public int offeredCell(XoxGame game, int actionIndex) {
+        if (actionIndex < 0)
+            return -1;
 
-        // look up if provided action is contained
-        for (XoxClaimFieldAction currentAction : validActions) {
-            if (currentAction.equals(selectedAction))
-                return true;
+        // Skip whole words of the free cell bitset, then select the remaining bit within the target word.
+        BoardSnapshot board = game.getBoard();
+        int remaining = actionIndex;
+        for (int word = 0; word < board.freeCellWordCount(); word++) {
+            long freeCells = board.freeCellWord(word);
+            int freeCount = Long.bitCount(freeCells);
+            if (remaining >= freeCount) {
+                remaining -= freeCount;
+                continue;
+            }
+            for (; remaining > 0; remaining--)
+                freeCells &= freeCells - 1;
+            return (word << 6) + Long.numberOfTrailingZeros(freeCells);
         }
-        return false;
+        return -1;
     }
 }
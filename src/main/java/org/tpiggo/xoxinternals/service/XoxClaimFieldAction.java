@@ -1,5 +1,6 @@
 package org.tpiggo.xoxinternals.service;
 
+import org.tpiggo.xoxinternals.model.Board;
 import org.tpiggo.xoxinternals.model.Player;
 
 /**
@@ -21,12 +22,13 @@ public class XoxClaimFieldAction {
      * @param x      as the column-index to be populated by this action.
      * @param y      as the row-index to be populated by this action.
      * @param player as the player for who the action is generated.
-     * @throws LogicException in case one of the provided position parameters is out of bounds.
+     * @throws LogicException in case one of the provided position parameters is out of bounds for any board. Whether
+     *                        the position exists on a specific board is verified by the board itself.
      */
     public XoxClaimFieldAction(int x, int y, Player player) throws LogicException {
-        if (x < 0 || x > 2)
+        if (x < 0 || x >= Board.MAX_SIZE)
             throw new LogicException("Xox action can not be created. X position is out of bounds.");
-        if (y < 0 || y > 2)
+        if (y < 0 || y >= Board.MAX_SIZE)
             throw new LogicException("Xox action can not be created. Y Position is out of bounds.");
 
         this.x = x;
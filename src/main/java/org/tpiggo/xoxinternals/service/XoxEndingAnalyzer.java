@@ -24,13 +24,17 @@ public class XoxEndingAnalyzer implements EndingAnalyzer {
             throw new LogicException("Xox Ending Analyzer can only work on instances of Xox games.");
         XoxGame xoxGame = (XoxGame) game;
 
+        // Games flag their end atomically when the final move is applied
+        if (xoxGame.isFinished())
+            return true;
+
         // check if board is full
         if (xoxGame.getBoard().isFull()) {
             xoxGame.markAsFinished();
             return true;
         }
 
-        // check if one player has 3 in a line
+        // check if one player has completed a line (tracked by the board on every move)
         if (xoxGame.getBoard().isThreeInALine()) {
             xoxGame.markAsFinished();
             return true;
@@ -2,9 +2,12 @@ package org.tpiggo.xoxinternals.service;
 
 import org.springframework.stereotype.Service;
 import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.GameHistory;
 import org.tpiggo.xoxinternals.model.Player;
 import org.tpiggo.xoxinternals.model.XoxInitSettings;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 
 
@@ -22,7 +25,15 @@ public interface XoxManager {
 
     XoxClaimFieldAction[] getActions(long gameId, String player);
 
-    void performAction(long gameId, String player, int actionIndex);
+    int performAction(long gameId, String player, int actionIndex);
+
+    int[] performActions(long[] gameIds, String[] players, int[] actionIndexes);
 
     Ranking getRanking(long gameId);
+
+    GameHistory getHistory(long gameId);
+
+    int[] getHints(long gameId);
+
+    long exportHistories(WritableByteChannel target) throws IOException;
 }
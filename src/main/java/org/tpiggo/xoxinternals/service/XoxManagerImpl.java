@@ -3,12 +3,20 @@ package org.tpiggo.xoxinternals.service;
 import org.springframework.stereotype.Service;
 import org.tpiggo.xoxinternals.model.*;
 
-import java.util.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 /**
  * Xox Controller Implementation. Acts as DAO for game state and provides endpoints to generate actions that allow state
- * modification. Indexes all running games and allows game-specific access by game-id. Note that for simplicity the
+ * modification. Indexes all running games in a concurrent registry and allows game-specific access by game-id, from any
+ * amount of threads. Every access resolves the game with a single lookup. Note that for simplicity the
  * signatures of this controller do not support error handling. In case of bad parameters, the controller will simply
  * ignore a method call or return an empty return object.
  *
@@ -17,12 +25,31 @@ import java.util.*;
 @Service
 public class XoxManagerImpl implements XoxManager {
 
+    // Amount of registry slots read per step of a history export.
+    private static final int HISTORY_EXPORT_WINDOW = 1024;
+
     private static XoxManagerImpl singletonReference;
     private final XoxActionGenerator actionGenerator;
-    private final ActionInterpreter actionInterpreter;
-    private final HashMap<Long, XoxGame> games;
+    private final XoxActionInterpreter actionInterpreter;
+    private final GameRegistry<GameSession> games;
     private final RankingGenerator rankingGenerator;
 
+    // Listeners notified about every state change. Replaced as a whole on registration, so iteration needs no lock.
+    private volatile GameEventListener[] eventListeners = new GameEventListener[0];
+
+    // Strategy of server controlled players on boards larger than 3x3. Null for the heuristic of XoxSolver.
+    private volatile BotStrategy boardBotStrategy;
+
+    // Runs mutations not issued by a client request, e.g. bot moves and evictions. Null to run them on the calling
+    // thread.
+    private volatile GameExecutor gameExecutor;
+
+    // Receives rejected moves and sampled action generation times. Null while metrics are disabled.
+    private volatile XoxMetrics metrics;
+
+    // Log that must record every state change. Null while logging is disabled.
+    private volatile MoveLog moveLog;
+
     /**
      * Private default constructor for singleton pattern. Initializes all required util classes and start a new game
      * with players "X" and "O".
@@ -30,8 +57,8 @@ public class XoxManagerImpl implements XoxManager {
     private XoxManagerImpl() {
 
         actionGenerator = new XoxActionGenerator();
-        actionInterpreter = new XoxActionInterpreter(actionGenerator, new XoxEndingAnalyzer());
-        games = new LinkedHashMap<>();
+        actionInterpreter = new XoxActionInterpreter(new XoxEndingAnalyzer());
+        games = new GameRegistry<>();
         rankingGenerator = new XoxRankingGenerator();
         initializeSampleGame();
     }
@@ -42,7 +69,7 @@ public class XoxManagerImpl implements XoxManager {
      *
      * @return unique singleton representative of this class.
      */
-    public static XoxManagerImpl getInstance() {
+    public static synchronized XoxManagerImpl getInstance() {
         if (singletonReference == null)
             singletonReference = new XoxManagerImpl();
         return singletonReference;
@@ -50,7 +77,7 @@ public class XoxManagerImpl implements XoxManager {
 
     @Override
     public Collection<Long> getGames() {
-        return games.keySet();
+        return games.ids();
     }
 
     /**
@@ -59,7 +86,14 @@ public class XoxManagerImpl implements XoxManager {
     @Override
     public void removeGame(long gameId) {
 
-        games.remove(gameId);
+        // Ignore if the removal could not be logged
+        if (!isLogAvailable())
+            return;
+        Object event = FlightRecorderEvents.beginRegistryAccess();
+        boolean removed = games.remove(gameId) != null;
+        FlightRecorderEvents.commitRegistryAccess(event, gameId, "REMOVE", removed ? "DONE" : "MISS");
+        if (removed)
+            notifyRemoved(gameId);
     }
 
     /**
@@ -67,33 +101,78 @@ public class XoxManagerImpl implements XoxManager {
      * game id is created randomly.
      *
      * @param initSettings as a settings bundle specifying details for the new game. (Player names, player colours,
-     *                     creator)
+     *                     creator, board dimensions)
      */
     @Override
     public long addGame(XoxInitSettings initSettings) {
 
-        // Generate a new random game id
-        long gameId = generateUniqueGameId();
+        checkLogAvailable();
+        GameSession session = new GameSession(createGame(initSettings));
+
+        // Register under a new random game id. Retries in the unlikely case the id is already taken.
+        long gameId = generateGameId();
+        while (!insert(gameId, session))
+            gameId = generateGameId();
+        notifyCreated(gameId, session.game);
+        playBotMoves(gameId, session);
+        return gameId;
+    }
+
+    /**
+     * Creates a new game entity under a game id chosen by the caller. Used by callers that need to know the id before
+     * the game exists, e.g. to route it to a shard.
+     *
+     * @param gameId       as the id of the new game.
+     * @param initSettings as a settings bundle specifying details for the new game.
+     * @return true if the game was registered, false if the id is already in use.
+     */
+    public boolean addGame(long gameId, XoxInitSettings initSettings) {
+        checkLogAvailable();
+        GameSession session = new GameSession(createGame(initSettings));
+        if (!insert(gameId, session))
+            return false;
+        notifyCreated(gameId, session.game);
+        playBotMoves(gameId, session);
+        return true;
+    }
+
+    /**
+     * Builds a game entity from an init settings bundle.
+     */
+    static XoxGame createGame(XoxInitSettings initSettings) {
 
         // If needed rearrange received array so that first player equals game creator
         if (!initSettings.getCreator().equals(initSettings.getPlayers().getFirst().getName()))
             initSettings.getPlayers().add(initSettings.getPlayers().removeFirst());
 
-        games.put(gameId, new XoxGame(initSettings.getPlayers().getFirst(), initSettings.getPlayers().getLast()));
-        return gameId;
+        // Flag the players controlled by the server
+        int botMask = 0;
+        if (initSettings.getBots() != null) {
+            for (String bot : initSettings.getBots()) {
+                if (bot.equals(initSettings.getPlayers().getFirst().getName()))
+                    botMask |= 1;
+                if (bot.equals(initSettings.getPlayers().getLast().getName()))
+                    botMask |= 2;
+            }
+        }
+
+        return new XoxGame(initSettings.getPlayers().getFirst(), initSettings.getPlayers().getLast(),
+                initSettings.getWidth(), initSettings.getHeight(), initSettings.getLineLength(), botMask);
     }
 
     /**
      * Getter for the current game board state. Return null if no game is currently initialized.
      *
-     * @return immutable snapshot of current board.
+     * @return immutable snapshot of current board. Shared with other readers, not copied.
      */
     @Override
     public BoardReadOnly getBoard(long gameId) {
 
-        if (!games.containsKey(gameId))
+        GameSession session = lookup(gameId);
+        if (session == null)
             return null;
-        return games.get(gameId).getBoard();
+        session.touch();
+        return session.game.getBoard();
     }
 
     /**
@@ -106,9 +185,10 @@ public class XoxManagerImpl implements XoxManager {
     @Override
     public Player[] getPlayers(long gameId) {
 
-        if (!games.containsKey(gameId))
+        GameSession session = lookup(gameId);
+        if (session == null)
             return null;
-        return games.get(gameId).getPlayers();
+        return session.game.getPlayers();
     }
 
     /**
@@ -116,62 +196,301 @@ public class XoxManagerImpl implements XoxManager {
      *
      * @param player as the player requesting a set of available actions in a running. Will return an empty collection
      *               if the player is not recognized.
-     * @return A map, indexing actions by the MD5 representation of their json string serialization. The index serves as
-     * key for later re-identification if an actions is selected. Returns null if no such game is currently initialized.
+     * @return An array of the available actions, ordered by the index of the cell they claim. The array index serves as
+     * key for later re-identification if an actions is selected. The array consists of preallocated actions and is
+     * shared by all callers until the board changes, it must not be modified. Returns null if no such game is currently
+     * initialized.
      */
     @Override
     public XoxClaimFieldAction[] getActions(long gameId, String player) {
 
         // Reject if no game is currently initialized
-        if (!games.containsKey(gameId))
+        GameSession session = lookup(gameId);
+        if (session == null)
             return null;
+        session.touch();
 
         // Look up player and build an action bundle. (only non empty for current player)
-        Player playerObject = games.get(gameId).getPlayerByName(player);
+        Object event = FlightRecorderEvents.beginActionGeneration();
+        XoxClaimFieldAction[] actions = generateActions(session, player);
+        FlightRecorderEvents.commitActionGeneration(event, gameId, session.game, player, actions.length);
+        return actions;
+    }
+
+    private XoxClaimFieldAction[] generateActions(GameSession session, String player) {
+        Player playerObject = session.game.getPlayerByName(player);
         if (playerObject == null)
 
             // Return empty map if the player is not recognized.
             // Error handling ignored for case study simplicity.
-            return new XoxClaimFieldAction[]{};
+            return XoxActionGenerator.NO_ACTIONS;
         try {
-            return actionGenerator.generateActions(games.get(gameId), playerObject).values().toArray(new XoxClaimFieldAction[]{});
+            XoxMetrics currentMetrics = metrics;
+            if (currentMetrics == null || !currentMetrics.sampleActionGeneration())
+                return actionGenerator.generateActionArray(session.game, playerObject, session.getActions());
+            long start = System.nanoTime();
+            XoxClaimFieldAction[] actions =
+                    actionGenerator.generateActionArray(session.game, playerObject, session.getActions());
+            currentMetrics.recordActionGeneration(System.nanoTime() - start);
+            return actions;
         } catch (LogicException e) {
 
             // Error handling ignored for case study simplicity.
-            return new XoxClaimFieldAction[]{};
+            return XoxActionGenerator.NO_ACTIONS;
         }
     }
 
     /**
-     * Blackboard-style way to allow a client select a specific operation. The operation is identified by the MD5
-     * representation of it's JSON serialization.
+     * Blackboard-style way to allow a client select a specific operation. The operation is identified by its index in
+     * the array of offered actions. The move is validated and applied in a single pass, without regenerating the
+     * offered actions.
      *
-     * @param player    as the player requesting to play an action
+     * @param player      as the player requesting to play an action
      * @param actionIndex as the index of the selected action in the original actions array
+     * @return MoveStatus.APPLIED if the action was applied, otherwise the MoveStatus code telling why it was rejected.
      */
     @Override
-    public void performAction(long gameId, String player, int actionIndex) {
+    public int performAction(long gameId, String player, int actionIndex) {
 
         // Reject if no such game is currently initialized
-        if (!games.containsKey(gameId))
+        GameSession session = lookup(gameId);
+        if (session == null)
+            return rejected(MoveStatus.GAME_NOT_FOUND);
+        session.touch();
+
+        // Reject if the player does not participate
+        int playerIndex = session.game.getPlayerIndex(player);
+        if (playerIndex < 0)
+            return rejected(MoveStatus.NOT_A_PARTICIPANT);
+
+        // Looks good - resolve and apply the selected action in one go
+        int status = applyOfferedAction(gameId, session, playerIndex, actionIndex);
+        return status == MoveStatus.APPLIED ? status : rejected(status);
+    }
+
+    /**
+     * Batch variant of performAction. Applies a list of moves, possibly spanning many games, in submission order. The
+     * i-th move is described by the i-th entry of each array. Consecutive moves on the same game share a single game
+     * lookup.
+     *
+     * @param gameIds       as the games to act on.
+     * @param players       as the players requesting to play an action.
+     * @param actionIndexes as the indexes of the selected actions in the original actions arrays.
+     * @return the MoveStatus code of every move, in submission order.
+     */
+    @Override
+    public int[] performActions(long[] gameIds, String[] players, int[] actionIndexes) {
+        checkBatch(gameIds, players, actionIndexes);
+        int[] statuses = new int[gameIds.length];
+        applyBatch(gameIds, players, actionIndexes, null, 0, gameIds.length, statuses);
+        return statuses;
+    }
+
+    /**
+     * Applies a range of a move batch. Moves are addressed through an optional order array, which allows callers to
+     * apply a subset of the batch without copying it.
+     *
+     * @param order    as the indexes of the moves to apply, or null to apply the moves from..to of the batch.
+     * @param from     as the first position to apply, inclusive.
+     * @param to       as the last position to apply, exclusive.
+     * @param statuses as the target array, indexed by move.
+     */
+    void applyBatch(long[] gameIds, String[] players, int[] actionIndexes, int[] order, int from, int to,
+                    int[] statuses) {
+        GameSession session = null;
+        long sessionId = 0;
+        for (int position = from; position < to; position++) {
+            int move = order == null ? position : order[position];
+
+            // Reuse the last lookup while the batch stays on the same game
+            if (session == null || sessionId != gameIds[move]) {
+                sessionId = gameIds[move];
+                session = lookup(sessionId);
+                if (session != null)
+                    session.touch();
+            }
+            if (session == null) {
+                statuses[move] = rejected(MoveStatus.GAME_NOT_FOUND);
+                continue;
+            }
+            int playerIndex = session.game.getPlayerIndex(players[move]);
+            int status = playerIndex < 0 ? MoveStatus.NOT_A_PARTICIPANT
+                    : applyOfferedAction(sessionId, session, playerIndex, actionIndexes[move]);
+            statuses[move] = status == MoveStatus.APPLIED ? status : rejected(status);
+        }
+    }
+
+    /**
+     * Reports a rejected client move to the metrics, if enabled.
+     *
+     * @return the provided status.
+     */
+    private int rejected(int status) {
+        XoxMetrics currentMetrics = metrics;
+        if (currentMetrics != null)
+            currentMetrics.recordRejectedMove(status);
+        return status;
+    }
+
+    /**
+     * Resolves and claims the cell of an offered action, then lets server controlled players answer if the move was
+     * applied.
+     */
+    private int applyOfferedAction(long gameId, GameSession session, int playerIndex, int actionIndex) {
+        int cell = actionInterpreter.offeredCell(session.game, actionIndex);
+        int status = applyMove(gameId, session, cell, playerIndex);
+        if (status == MoveStatus.APPLIED)
+            playBotMoves(gameId, session);
+        return status;
+    }
+
+    /**
+     * Plays the moves of server controlled players for as long as it is their turn. Stops if a move is rejected, which
+     * means a concurrent move on the game took the turn. Moves of the bot strategy are only requested here, they are
+     * applied once chosen, so the calling thread never waits for a search.
+     */
+    private void playBotMoves(long gameId, GameSession session) {
+        XoxGame game = session.game;
+        if (game.getBotMask() == 0)
             return;
+        BotStrategy strategy = boardBotStrategy;
+        int playerIndex = game.getCurrentPlayerIndex();
+        while (game.isBot(playerIndex)) {
+            if (!game.isPacked() && strategy != null) {
+                requestBotMove(gameId, session, strategy, playerIndex);
+                return;
+            }
+            int cell = XoxSolver.chooseCell(game);
+            if (cell < 0 || applyMove(gameId, session, cell, playerIndex) != MoveStatus.APPLIED)
+                return;
+            playerIndex = 1 - playerIndex;
+        }
+    }
 
-        // Verify the selected action was actually offered
-        XoxClaimFieldAction[] offeredActions = getActions(gameId, player);
+    /**
+     * Requests the move of a server controlled player from the bot strategy. The chosen move is applied through the
+     * game executor, if any, unless the game was removed meanwhile.
+     */
+    private void requestBotMove(final long gameId, final GameSession session, BotStrategy strategy,
+                                final int playerIndex) {
+        strategy.requestCell(session.game, new BotStrategy.CellCallback() {
+            @Override
+            public void onCellChosen(final int cell) {
+                if (cell < 0)
+                    return;
+                Runnable move = new Runnable() {
+                    @Override
+                    public void run() {
+                        if (games.get(gameId) == session
+                                && applyMove(gameId, session, cell, playerIndex) == MoveStatus.APPLIED)
+                            playBotMoves(gameId, session);
+                    }
+                };
+                execute(gameId, move);
+            }
+        });
+    }
+
+    /**
+     * Runs a mutation of a game that is not issued by a client request, through the game executor if one is set,
+     * otherwise right away on the calling thread.
+     */
+    void execute(long gameId, Runnable mutation) {
+        GameExecutor executor = gameExecutor;
+        if (executor == null)
+            mutation.run();
+        else
+            executor.execute(gameId, mutation);
+    }
+
+    /**
+     * Claims a cell, then notifies the listeners if the move was applied. The flight recorder event covers the claim
+     * only, listeners such as the move log report their own delays.
+     */
+    private int applyMove(long gameId, GameSession session, int cell, int playerIndex) {
+        if (!isLogAvailable())
+            return MoveStatus.UNAVAILABLE;
+        Object event = FlightRecorderEvents.beginMove();
+        int status = session.game.claimCell(cell, playerIndex);
+        FlightRecorderEvents.commitMove(event, gameId, session.game, playerIndex, cell, status);
+        if (status == MoveStatus.APPLIED) {
+            for (GameEventListener listener : eventListeners)
+                listener.onMoveApplied(gameId, cell, playerIndex);
+        }
+        if (status == MoveStatus.APPLIED && session.game.isFinished() && session.claimFinishReport())
+            notifyFinished(gameId, session);
+        return status;
+    }
 
-        // Looks good - perform the action by passing it to the XoxActionInterpreter
-        XoxClaimFieldAction selectedAction = offeredActions[actionIndex];
+    /**
+     * Computes the final ranking of a game that just ended, so polling readers never compute it themselves, then
+     * reports the end to the listeners.
+     */
+    private void notifyFinished(long gameId, GameSession session) {
+        Object event = FlightRecorderEvents.beginEndingAnalysis();
+        Ranking ranking;
         try {
-            actionInterpreter.interpretAndApplyAction(selectedAction, games.get(gameId));
-        } catch (LogicException | ModelAccessException internalException) {
+            ranking = session.getRanking(rankingGenerator);
+        } catch (LogicException e) {
+
             // Error handling ignored for case study simplicity.
-            return;
+            ranking = null;
         }
+        if (ranking != null) {
+            for (GameEventListener listener : eventListeners)
+                listener.onGameFinished(gameId, ranking);
+        }
+        FlightRecorderEvents.commitEndingAnalysis(event, gameId, session.game, ranking);
+    }
+
+    /**
+     * Resolves the session of a game, reporting slow lookups to the flight recorder.
+     *
+     * @return the session, or null if no such game is registered.
+     */
+    private GameSession lookup(long gameId) {
+        Object event = FlightRecorderEvents.beginRegistryAccess();
+        GameSession session = games.get(gameId);
+        FlightRecorderEvents.commitRegistryAccess(event, gameId, "LOOKUP", session == null ? "MISS" : "HIT");
+        return session;
+    }
+
+    /**
+     * Registers a session, unless the id is already taken.
+     *
+     * @return true if the session was registered.
+     */
+    private boolean insert(long gameId, GameSession session) {
+        Object event = FlightRecorderEvents.beginRegistryAccess();
+        boolean inserted = games.putIfAbsent(gameId, session) == null;
+        FlightRecorderEvents.commitRegistryAccess(event, gameId, "INSERT", inserted ? "DONE" : "ID_TAKEN");
+        return inserted;
+    }
+
+    /**
+     * Tells whether state changes can be logged. True if logging is disabled.
+     */
+    private boolean isLogAvailable() {
+        MoveLog currentLog = moveLog;
+        return currentLog == null || currentLog.isAvailable();
+    }
+
+    private void checkLogAvailable() {
+        if (!isLogAvailable())
+            throw new RuntimeException("Move log is unavailable, no games can be created.");
+    }
+
+    /**
+     * Verifies the arrays of a move batch describe the same amount of moves.
+     */
+    static void checkBatch(long[] gameIds, String[] players, int[] actionIndexes) {
+        if (gameIds.length != players.length || gameIds.length != actionIndexes.length)
+            throw new RuntimeException("Batch arrays must be of equal length.");
     }
 
     /**
      * Returns current player scores as a serialized ranking object. The ranking object also tells if the game has
-     * already ended.
+     * already ended. Rankings are memoized per game, the final ranking is computed once when the game ends.
      *
      * @return a ranking bundle object with details on the players and their scores.
      */
@@ -179,11 +498,13 @@ public class XoxManagerImpl implements XoxManager {
     public Ranking getRanking(long gameId) {
 
         // Reject if no such game is currently initialized
-        if (!games.containsKey(gameId))
+        GameSession session = lookup(gameId);
+        if (session == null)
             return null;
+        session.touch();
 
         try {
-            return rankingGenerator.computeRanking(games.get(gameId));
+            return session.getRanking(rankingGenerator);
         } catch (LogicException e) {
 
             // Error handling ignored for case study simplicity.
@@ -191,6 +512,97 @@ public class XoxManagerImpl implements XoxManager {
         }
     }
 
+    /**
+     * Suggests moves for the current player of a game. Classic games are answered from the precomputed position table
+     * and list all moves that keep the best achievable outcome. Larger boards get the single move a bot would play.
+     *
+     * @return the suggested cells, y * width + x, empty if the game is over, or null if no such game is currently
+     * initialized.
+     */
+    @Override
+    public int[] getHints(long gameId) {
+
+        // Reject if no such game is currently initialized
+        GameSession session = lookup(gameId);
+        if (session == null)
+            return null;
+        session.touch();
+
+        XoxGame game = session.game;
+        if (!game.isPacked()) {
+            int cell = XoxSolver.chooseCell(game);
+            return cell < 0 ? new int[0] : new int[]{cell};
+        }
+        int entry = PositionTable.getInstance().lookup(game);
+        int bestMoves = game.isFinished() ? 0 : PositionTable.getBestMoves(entry);
+        int[] hints = new int[Integer.bitCount(bestMoves)];
+        for (int i = 0; i < hints.length; i++) {
+            hints[i] = Integer.numberOfTrailingZeros(bestMoves);
+            bestMoves &= bestMoves - 1;
+        }
+        return hints;
+    }
+
+    /**
+     * Looks up the move history of a game. The history can be used to rebuild any intermediate position.
+     *
+     * @return the history, or null if no such game is currently initialized.
+     */
+    @Override
+    public GameHistory getHistory(long gameId) {
+
+        // Reject if no such game is currently initialized
+        GameSession session = lookup(gameId);
+        if (session == null)
+            return null;
+        return session.game.getHistory();
+    }
+
+    /**
+     * Streams the histories of all games in their binary encoding. Each record is the game id (8 bytes) followed by
+     * the encoded history, see GameHistory. Games are read window by window while moves proceed, each history is
+     * consistent in itself.
+     *
+     * @param target as the channel to write to.
+     * @return the amount of histories written.
+     */
+    @Override
+    public long exportHistories(final WritableByteChannel target) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        final long[] windowIds = new long[HISTORY_EXPORT_WINDOW];
+        final GameSession[] window = new GameSession[HISTORY_EXPORT_WINDOW];
+        final int[] windowSize = new int[1];
+        long exported = 0;
+        long cursor = 0;
+        do {
+            windowSize[0] = 0;
+            cursor = games.scan(cursor, HISTORY_EXPORT_WINDOW, new GameRegistry.Visitor<GameSession>() {
+                @Override
+                public void visit(long id, GameSession session) {
+                    windowIds[windowSize[0]] = id;
+                    window[windowSize[0]++] = session;
+                }
+            });
+            for (int i = 0; i < windowSize[0]; i++) {
+                GameHistory history = window[i].game.getHistory();
+                if (buffer.remaining() < 8 + history.getEncodedSize())
+                    drain(buffer, target);
+                buffer.putLong(windowIds[i]);
+                history.writeTo(buffer);
+                exported++;
+            }
+        } while (cursor != 0);
+        drain(buffer, target);
+        return exported;
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel target) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            target.write(buffer);
+        buffer.clear();
+    }
+
     private void initializeSampleGame() {
 
         // reject if map not empty
@@ -201,17 +613,131 @@ public class XoxManagerImpl implements XoxManager {
         XoxGame sampleGame = new XoxGame(new Player("Max", "#CAFFEE"), new Player("Moritz", "#1CE7EA"));
 
         // Add sample game at fixed index ... (Note: all other game ID must be generated dynamically)
-        games.put(new Long(42), sampleGame);
+        games.put(42, new GameSession(sampleGame));
     }
 
     /**
-     * Creates a random game ID that is not yet in use.
+     * @return the registry of all resident games, for service classes that maintain it.
      */
-    private long generateUniqueGameId() {
-        long randomGameId = Math.abs(new Random().nextLong());
-        while (games.keySet().contains(randomGameId)) {
-            randomGameId = Math.abs(new Random().nextLong());
-        }
-        return randomGameId;
+    GameRegistry<GameSession> getSessions() {
+        return games;
+    }
+
+    /**
+     * Lets server controlled players move in every unfinished game where it is their turn. Called once games were
+     * restored: the reply of a bot is applied and logged after the preceding move, so it may be missing from a
+     * snapshot or log, and nothing else would ever request it.
+     *
+     * @return the amount of games whose bot turn was resumed.
+     */
+    int resumeBotTurns() {
+        final List<Long> ids = new ArrayList<>();
+        final List<GameSession> sessions = new ArrayList<>();
+        games.forEach(new GameRegistry.Visitor<GameSession>() {
+            @Override
+            public void visit(long id, GameSession session) {
+                XoxGame game = session.game;
+                if (!game.isFinished() && game.isBot(game.getCurrentPlayerIndex())) {
+                    ids.add(id);
+                    sessions.add(session);
+                }
+            }
+        });
+
+        // Moves are played outside the iteration, which holds the read lock of a registry segment.
+        for (int i = 0; i < ids.size(); i++)
+            playBotMoves(ids.get(i), sessions.get(i));
+        return ids.size();
+    }
+
+    /**
+     * Removes a game, unless it was replaced or removed concurrently.
+     *
+     * @return true if the game was removed.
+     */
+    boolean removeSession(long gameId, GameSession session) {
+        if (!isLogAvailable())
+            return false;
+        Object event = FlightRecorderEvents.beginRegistryAccess();
+        boolean removed = games.remove(gameId, session);
+        FlightRecorderEvents.commitRegistryAccess(event, gameId, "REMOVE", removed ? "DONE" : "MISS");
+        if (!removed)
+            return false;
+        notifyRemoved(gameId);
+        return true;
+    }
+
+    /**
+     * Replaces the strategy of server controlled players on boards larger than 3x3. Classic games are always played
+     * perfectly.
+     *
+     * @param strategy as the new strategy, or null to restore the built in heuristic of XoxSolver.
+     */
+    public void setBoardBotStrategy(BotStrategy strategy) {
+        boardBotStrategy = strategy;
+    }
+
+    /**
+     * Sets the executor that runs mutations not issued by a client request: moves chosen asynchronously by the bot
+     * strategy and evictions.
+     *
+     * @param executor as the executor, or null to run them on the calling thread.
+     */
+    void setGameExecutor(GameExecutor executor) {
+        gameExecutor = executor;
+    }
+
+    /**
+     * Sets the metrics that rejected moves and action generation times are reported to.
+     *
+     * @param metrics as the metrics to report to, or null to stop reporting.
+     */
+    public void setMetrics(XoxMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the log that must record every state change. While it is unavailable, moves are rejected with
+     * MoveStatus.UNAVAILABLE, creations fail and removals are ignored.
+     *
+     * @param moveLog as the log, or null if state changes are not logged.
+     */
+    void setMoveLog(MoveLog moveLog) {
+        this.moveLog = moveLog;
+    }
+
+    /**
+     * Registers a listener for all subsequent state changes of all games.
+     */
+    public synchronized void addEventListener(GameEventListener listener) {
+        GameEventListener[] extended = Arrays.copyOf(eventListeners, eventListeners.length + 1);
+        extended[eventListeners.length] = listener;
+        eventListeners = extended;
+    }
+
+    /**
+     * Unregisters a listener. Notifications already in progress may still reach it.
+     */
+    public synchronized void removeEventListener(GameEventListener listener) {
+        List<GameEventListener> remaining = new ArrayList<>(Arrays.asList(eventListeners));
+        remaining.remove(listener);
+        eventListeners = remaining.toArray(new GameEventListener[0]);
+    }
+
+    private void notifyCreated(long gameId, XoxGame game) {
+        for (GameEventListener listener : eventListeners)
+            listener.onGameCreated(gameId, game);
+    }
+
+    private void notifyRemoved(long gameId) {
+        for (GameEventListener listener : eventListeners)
+            listener.onGameRemoved(gameId);
+    }
+
+    /**
+     * Creates a random, non-negative game ID. Uniqueness is enforced on registration.
+     */
+    static long generateGameId() {
+        return ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
     }
 }
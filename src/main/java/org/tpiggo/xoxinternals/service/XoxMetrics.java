@@ -0,0 +1,243 @@
+package org.tpiggo.xoxinternals.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operational metrics of the Xox manager and its REST interface: game lifecycle counts, applied and rejected moves,
+ * action generation time, request latency per endpoint and, in sharded execution mode, the mailbox depth per shard.
+ * Rendered in the Prometheus text format.
+ * <p>
+ * Recording stays off the shared cache lines of the hot path: counters are striped LongAdders, latencies go to
+ * lock-free histograms, and action generation, which takes only tens of nanoseconds, is timed for one call in
+ * ACTION_SAMPLE_RATE only. Enabled unless the property xox.metrics.enabled=false.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Service
+@ConditionalOnProperty(name = "xox.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class XoxMetrics implements GameEventListener {
+
+    /**
+     * One in this many action generations is timed. Must be a power of two.
+     */
+    public static final int ACTION_SAMPLE_RATE = 64;
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final XoxManagerImpl manager;
+    private GameEvictor evictor;
+    private ShardedXoxManager shardedManager;
+
+    private final LongAdder gamesCreated = new LongAdder();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder gamesRemoved = new LongAdder();
+    private final LongAdder movesApplied = new LongAdder();
+    private final LongAdder[] movesRejected = new LongAdder[MoveStatus.COUNT];
+    private final LatencyHistogram actionGeneration = new LatencyHistogram();
+
+    // Request latencies, keyed by method and path pattern, e.g. "GET /board/{id}".
+    private final ConcurrentHashMap<String, LatencyHistogram> requests = new ConcurrentHashMap<>();
+
+    public XoxMetrics(XoxManagerImpl manager) {
+        this.manager = manager;
+        for (int status = 0; status < MoveStatus.COUNT; status++)
+            movesRejected[status] = new LongAdder();
+    }
+
+    /**
+     * Sets the evictor whose eviction counts are reported.
+     */
+    @Autowired(required = false)
+    public void setEvictor(GameEvictor evictor) {
+        this.evictor = evictor;
+    }
+
+    /**
+     * Sets the sharded manager whose mailbox depths are reported. Only present in sharded execution mode.
+     */
+    @Autowired(required = false)
+    public void setShardedManager(ShardedXoxManager shardedManager) {
+        this.shardedManager = shardedManager;
+    }
+
+    @PostConstruct
+    public void start() {
+        manager.addEventListener(this);
+        manager.setMetrics(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        manager.setMetrics(null);
+        manager.removeEventListener(this);
+    }
+
+    @Override
+    public void onGameCreated(long gameId, XoxGame game) {
+        gamesCreated.increment();
+    }
+
+    @Override
+    public void onMoveApplied(long gameId, int cell, int playerIndex) {
+        movesApplied.increment();
+    }
+
+    @Override
+    public void onGameFinished(long gameId, Ranking ranking) {
+        gamesFinished.increment();
+    }
+
+    @Override
+    public void onGameRemoved(long gameId) {
+        gamesRemoved.increment();
+    }
+
+    /**
+     * Counts a move that was not applied.
+     *
+     * @param status as the MoveStatus code telling why.
+     */
+    public void recordRejectedMove(int status) {
+        if (status > MoveStatus.APPLIED && status < MoveStatus.COUNT)
+            movesRejected[status].increment();
+    }
+
+    /**
+     * Tells whether the current action generation should be timed. Samples one in ACTION_SAMPLE_RATE calls.
+     */
+    public boolean sampleActionGeneration() {
+        return (ThreadLocalRandom.current().nextInt() & (ACTION_SAMPLE_RATE - 1)) == 0;
+    }
+
+    /**
+     * Records the duration of a sampled action generation.
+     */
+    public void recordActionGeneration(long nanos) {
+        actionGeneration.record(nanos);
+    }
+
+    /**
+     * Records the latency of a handled request.
+     *
+     * @param endpoint as the method and path pattern of the request, e.g. "GET /board/{id}".
+     * @param nanos    as the time from receiving the request to completing the response.
+     */
+    public void recordRequest(String endpoint, long nanos) {
+        LatencyHistogram histogram = requests.get(endpoint);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = requests.putIfAbsent(endpoint, created);
+            if (histogram == null)
+                histogram = created;
+        }
+        histogram.record(nanos);
+    }
+
+    public long getGamesCreated() {
+        return gamesCreated.sum();
+    }
+
+    public long getMovesApplied() {
+        return movesApplied.sum();
+    }
+
+    public long getMovesRejected(int status) {
+        return movesRejected[status].sum();
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format. Scraping has no side effects, rates are left to
+     * the scraper, e.g. rate(xox_moves_applied_total[1m]) for applied moves per second.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        counter(out, "xox_games_created_total", "Games created.", gamesCreated.sum());
+        gauge(out, "xox_games_held", "Games currently held by the manager, running or finished.",
+                manager.getSessions().size());
+        counter(out, "xox_games_finished_total", "Games played to the end.", gamesFinished.sum());
+        counter(out, "xox_games_removed_total", "Games removed, explicitly or by eviction.", gamesRemoved.sum());
+        GameEvictor currentEvictor = evictor;
+        if (currentEvictor != null) {
+            header(out, "xox_games_evicted_total", "Games evicted by the retention policy.", "counter");
+            sample(out, "xox_games_evicted_total{reason=\"finished\"}", currentEvictor.getExpiredFinishedCount());
+            sample(out, "xox_games_evicted_total{reason=\"idle\"}", currentEvictor.getExpiredIdleCount());
+            sample(out, "xox_games_evicted_total{reason=\"capacity\"}",
+                    currentEvictor.getEvictedOverCapacityCount());
+        }
+
+        counter(out, "xox_moves_applied_total", "Moves applied, including server controlled players.",
+                movesApplied.sum());
+        header(out, "xox_moves_rejected_total", "Moves rejected, by reason.", "counter");
+        for (int status = MoveStatus.APPLIED + 1; status < MoveStatus.COUNT; status++)
+            sample(out, "xox_moves_rejected_total{reason=\"" + MoveStatus.nameOf(status) + "\"}",
+                    movesRejected[status].sum());
+
+        ShardedXoxManager currentShardedManager = shardedManager;
+        if (currentShardedManager != null) {
+            header(out, "xox_shard_queue_depth", "Mutations waiting in the mailbox of a shard.", "gauge");
+            int[] depths = currentShardedManager.getQueueDepths();
+            for (int shard = 0; shard < depths.length; shard++)
+                sample(out, "xox_shard_queue_depth{shard=\"" + shard + "\"}", depths[shard]);
+        }
+
+        header(out, "xox_action_generation_seconds",
+                "Time to build the actions of a player, sampled 1 in " + ACTION_SAMPLE_RATE + ".", "summary");
+        summary(out, "xox_action_generation_seconds", "", actionGeneration);
+
+        header(out, "xox_http_request_seconds", "Request latency per endpoint.", "summary");
+        for (Map.Entry<String, LatencyHistogram> request : new TreeMap<>(requests).entrySet()) {
+            String endpoint = request.getKey();
+            int separator = endpoint.indexOf(' ');
+            String labels = "method=\"" + endpoint.substring(0, separator) + "\",uri=\""
+                    + endpoint.substring(separator + 1) + "\"";
+            summary(out, "xox_http_request_seconds", labels, request.getValue());
+        }
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        sample(out, name, value);
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        sample(out, name, value);
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String separator = labels.isEmpty() ? "" : ",";
+        for (double quantile : QUANTILES)
+            sample(out, name + "{" + labels + separator + "quantile=\"" + quantile + "\"}",
+                    histogram.getValueAtPercentile(quantile * 100) / 1e9);
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        long count = histogram.getCount();
+        sample(out, name + "_sum" + suffix, histogram.getMean() * count / 1e9);
+        sample(out, name + "_count" + suffix, count);
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, long value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, double value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+}
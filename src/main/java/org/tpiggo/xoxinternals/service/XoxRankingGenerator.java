@@ -24,12 +24,10 @@ public class XoxRankingGenerator implements RankingGenerator {
         if (!((XoxGame) game).isFinished())
             return new Ranking(game.getPlayers(), new int[]{0, 0}, false);
 
-        // Verify there actually is a player, if not:
-        if (isDraw(xoxGame))
-            return new Ranking(game.getPlayers(), new int[]{0, 0}, true);
-
-        // Winner (player with 3 in a row) gets 1 point, looser 0.
+        // Winner (player with 3 in a row) gets 1 point, looser 0. Without a completed line the game is a draw.
         int winnerInt = xoxGame.getBoard().getThreeInALineCharIfExists();
+        if (winnerInt == 0)
+            return new Ranking(game.getPlayers(), new int[]{0, 0}, true);
         Player[] rankedPlayers = game.getPlayers();
 
         // If the non-creator won, overwrite with a ranking that is the inverse of the games player listing.
@@ -41,16 +39,4 @@ public class XoxRankingGenerator implements RankingGenerator {
         }
         return new Ranking(rankedPlayers, new int[]{1, 0}, true);
     }
-
-    /**
-     * Analyze if the provided game resulted in a draw (no winner)
-     *
-     * @return
-     */
-    private boolean isDraw(XoxGame game) {
-        if (!game.isFinished())
-            return false;
-
-        return !game.getBoard().isThreeInALine();
-    }
 }
@@ -0,0 +1,79 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+import org.tpiggo.xoxinternals.service.LogicException;
+import org.tpiggo.xoxinternals.service.XoxActionGenerator;
+import org.tpiggo.xoxinternals.service.XoxClaimFieldAction;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.util.Map;
+
+/**
+ * Unit tests for cell-index based action generation.
+ */
+public class ActionGeneratorTest extends XoxTestUtils {
+
+    /**
+     * Verifies action ids are the indexes of the claimed cells and the primitive view matches the action map.
+     */
+    @Test
+    public void testCellIds() throws LogicException {
+        Player x = new Player("X", "#000000");
+        Player o = new Player("O", "#FFFFFF");
+        XoxGame game = new XoxGame(x, o, 4, 3, 3);
+        game.claim(1, 0, 0);
+
+        XoxActionGenerator generator = new XoxActionGenerator();
+        Map<String, XoxClaimFieldAction> actions = generator.generateActions(game, o);
+        Assert.assertEquals(11, actions.size());
+        Assert.assertFalse(actions.containsKey("1"));
+        Assert.assertEquals(2, actions.get("6").getX());
+        Assert.assertEquals(1, actions.get("6").getY());
+
+        int[] cells = new int[12];
+        Assert.assertEquals(11, generator.generateActionCells(game, o, cells));
+        Assert.assertEquals(0, cells[0]);
+        Assert.assertEquals(2, cells[1]);
+        Assert.assertEquals(0, generator.generateActionCells(game, x, cells));
+    }
+
+    /**
+     * Verifies the manager hands out the same preallocated actions until the board changes.
+     */
+    @Test
+    public void testPreallocatedActions() {
+        long gameId = XoxManagerImpl.getInstance().addGame(getDefaultInitSettings(false));
+        XoxClaimFieldAction[] first = XoxManagerImpl.getInstance().getActions(gameId, "X");
+        Assert.assertSame(first, XoxManagerImpl.getInstance().getActions(gameId, "X"));
+
+        XoxManagerImpl.getInstance().performAction(gameId, "X", 0);
+        XoxManagerImpl.getInstance().performAction(gameId, "O", 0);
+        XoxClaimFieldAction[] third = XoxManagerImpl.getInstance().getActions(gameId, "X");
+        Assert.assertEquals(7, third.length);
+        Assert.assertSame("Actions of untouched cells should be reused", first[8], third[6]);
+    }
+
+    /**
+     * Verifies the single pass move pipeline resolves action indexes to free cells and reports rejections as codes.
+     */
+    @Test
+    public void testMoveStatus() {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        long gameId = manager.addGame(getDefaultInitSettings(false));
+        Assert.assertEquals(MoveStatus.NOT_YOUR_TURN, manager.performAction(gameId, "O", 0));
+        Assert.assertEquals(MoveStatus.NOT_A_PARTICIPANT, manager.performAction(gameId, "Observer", 0));
+        Assert.assertEquals(MoveStatus.INVALID_ACTION, manager.performAction(gameId, "X", 9));
+        Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 4));
+
+        // The fifth free cell of the remaining board is cell 5, the centre is taken.
+        Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "O", 4));
+        int[][] cells = manager.getBoard(gameId).getCells();
+        Assert.assertEquals(1, cells[1][1]);
+        Assert.assertEquals(2, cells[1][2]);
+        Assert.assertEquals(MoveStatus.GAME_NOT_FOUND, manager.performAction(-1, "X", 0));
+    }
+}
@@ -0,0 +1,203 @@
+package org.tpiggo.xoxinternals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.service.BoardFeed;
+import org.tpiggo.xoxinternals.service.BoardSubscriber;
+import org.tpiggo.xoxinternals.service.BoardUpdate;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the push of board updates to subscribers.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class BoardFeedTest extends XoxTestUtils {
+
+    /**
+     * Verifies a subscriber receives the current board right away, the board after every move, and is closed once the
+     * game is removed.
+     */
+    @Test
+    public void testPushAndClose() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        BoardFeed feed = new BoardFeed(manager, new ObjectMapper(), 2, 1000);
+        feed.start();
+        try {
+            long gameId = manager.addGame(getDefaultInitSettings(false));
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            Assert.assertTrue(feed.subscribe(gameId, subscriber));
+            Assert.assertFalse(feed.subscribe(-1, new RecordingSubscriber()));
+
+            BoardUpdate initial = subscriber.updates.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(initial);
+            Assert.assertEquals(0, initial.getVersion());
+            Assert.assertEquals("X", initial.getCurrentPlayer());
+            Assert.assertFalse(initial.isFinished());
+
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 4));
+            BoardUpdate afterMove = subscriber.updates.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(afterMove);
+            Assert.assertEquals(1, afterMove.getVersion());
+            Assert.assertEquals("O", afterMove.getCurrentPlayer());
+            Assert.assertEquals(1, feed.getSubscriberCount());
+
+            manager.removeGame(gameId);
+            Assert.assertTrue(subscriber.closed.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, feed.getSubscriberCount());
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    /**
+     * Verifies a subscriber that rejects an update is dropped, while the others keep receiving updates.
+     */
+    @Test
+    public void testDropRejectingSubscriber() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        BoardFeed feed = new BoardFeed(manager, new ObjectMapper(), 1, 1000);
+        feed.start();
+        try {
+            long gameId = manager.addGame(getDefaultInitSettings(false));
+            RecordingSubscriber healthy = new RecordingSubscriber();
+            RecordingSubscriber broken = new RecordingSubscriber();
+            broken.accept = false;
+            feed.subscribe(gameId, healthy);
+            feed.subscribe(gameId, broken);
+
+            Assert.assertTrue(broken.closed.await(5, TimeUnit.SECONDS));
+            Assert.assertNotNull(healthy.updates.poll(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, feed.getSubscriberCount());
+            manager.removeGame(gameId);
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    /**
+     * Verifies all subscribers of a game receive the same encoded update, and a subscriber whose write exceeds the
+     * write timeout is dropped.
+     */
+    @Test
+    public void testSharedPayloadAndSlowSubscriber() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        BoardFeed feed = new BoardFeed(manager, new ObjectMapper(), 1, 50);
+        feed.start();
+        try {
+            long gameId = manager.addGame(getDefaultInitSettings(false));
+            RecordingSubscriber first = new RecordingSubscriber();
+            feed.subscribe(gameId, first);
+            Assert.assertNotNull(first.updates.poll(5, TimeUnit.SECONDS));
+
+            // A subscriber blocking longer than the write timeout is dropped after its write.
+            RecordingSubscriber second = new RecordingSubscriber();
+            second.delayMillis = 200;
+            feed.subscribe(gameId, second);
+            Assert.assertNotNull(second.updates.poll(5, TimeUnit.SECONDS));
+            Assert.assertTrue(second.closed.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, feed.getSlowDropCount());
+            Assert.assertEquals(1, feed.getSubscriberCount());
+
+            second = new RecordingSubscriber();
+            feed.subscribe(gameId, second);
+            Assert.assertNotNull(second.updates.poll(5, TimeUnit.SECONDS));
+
+            // Both receive the board after the move, encoded once.
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 4));
+            Assert.assertNotNull(first.updates.poll(5, TimeUnit.SECONDS));
+            Assert.assertNotNull(second.updates.poll(5, TimeUnit.SECONDS));
+            Assert.assertSame(first.lastJson, second.lastJson);
+            manager.removeGame(gameId);
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    /**
+     * Verifies a subscriber whose write never returns neither delays the other subscribers nor other games, and is
+     * dropped once a further update finds its write over the timeout.
+     */
+    @Test
+    public void testBlockedSubscriber() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        BoardFeed feed = new BoardFeed(manager, new ObjectMapper(), 1, 50);
+        feed.start();
+        RecordingSubscriber blocked = new RecordingSubscriber();
+        blocked.release = new CountDownLatch(1);
+        try {
+            long gameId = manager.addGame(getDefaultInitSettings(false));
+            long otherGameId = manager.addGame(getDefaultInitSettings(false));
+            RecordingSubscriber healthy = new RecordingSubscriber();
+            RecordingSubscriber other = new RecordingSubscriber();
+            feed.subscribe(gameId, blocked);
+            feed.subscribe(gameId, healthy);
+            feed.subscribe(otherGameId, other);
+            Assert.assertNotNull(healthy.updates.poll(5, TimeUnit.SECONDS));
+            Assert.assertNotNull(other.updates.poll(5, TimeUnit.SECONDS));
+            Assert.assertTrue(blocked.entered.await(5, TimeUnit.SECONDS));
+
+            // The first write of the blocked subscriber is over the timeout by now.
+            Thread.sleep(100);
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 4));
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(otherGameId, "X", 4));
+            Assert.assertEquals(1, healthy.updates.poll(5, TimeUnit.SECONDS).getVersion());
+            Assert.assertEquals(1, other.updates.poll(5, TimeUnit.SECONDS).getVersion());
+            Assert.assertTrue(blocked.closed.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, feed.getSlowDropCount());
+            Assert.assertEquals(2, feed.getSubscriberCount());
+            manager.removeGame(gameId);
+            manager.removeGame(otherGameId);
+        } finally {
+            blocked.release.countDown();
+            feed.shutdown();
+        }
+    }
+
+    private static class RecordingSubscriber implements BoardSubscriber {
+        final LinkedBlockingQueue<BoardUpdate> updates = new LinkedBlockingQueue<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        volatile boolean accept = true;
+        volatile long delayMillis;
+        volatile String lastJson;
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch release;
+
+        @Override
+        public boolean push(BoardUpdate update, String json) {
+            entered.countDown();
+            if (!accept)
+                return false;
+            if (release != null) {
+
+                // Blocks like a write to a client that stopped reading.
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            lastJson = json;
+            updates.add(update);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
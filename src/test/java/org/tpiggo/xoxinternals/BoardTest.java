@@ -0,0 +1,128 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.Board;
+import org.tpiggo.xoxinternals.model.BoardSnapshot;
+import org.tpiggo.xoxinternals.model.ModelAccessException;
+
+/**
+ * Unit tests for the bitboard backed m,n,k Board.
+ */
+public class BoardTest {
+
+    /**
+     * Verifies a fresh board is empty, not full and has no line.
+     */
+    @Test
+    public void testEmptyBoard() {
+        Board board = new Board();
+        Assert.assertTrue("New board should be empty", board.isEmpty());
+        Assert.assertFalse("New board should not be full", board.isFull());
+        Assert.assertEquals(0, board.getThreeInALineCharIfExists());
+    }
+
+    /**
+     * Verifies lines are detected for the player owning them, including anti diagonals and lines that are not the
+     * first ones scanned.
+     */
+    @Test
+    public void testLines() throws ModelAccessException {
+        Board board = new Board();
+        board.occupy(2, 0, false);
+        board.occupy(1, 1, false);
+        Assert.assertFalse(board.isThreeInALine());
+        board.occupy(0, 2, false);
+        Assert.assertEquals(2, board.getThreeInALineCharIfExists());
+
+        board = new Board();
+        board.occupy(1, 0, true);
+        board.occupy(1, 1, true);
+        board.occupy(1, 2, true);
+        Assert.assertEquals(1, board.getThreeInALineCharIfExists());
+        Assert.assertEquals(1, board.getCells()[2][1]);
+        Assert.assertEquals(0, board.getCells()[1][0]);
+    }
+
+    /**
+     * Verifies full detection and that occupied cells can not be claimed twice.
+     */
+    @Test
+    public void testFullAndOccupied() throws ModelAccessException {
+        Board board = new Board();
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                board.occupy(x, y, (x + y) % 2 == 0);
+            }
+        }
+        Assert.assertTrue(board.isFull());
+        Assert.assertFalse(board.isEmpty());
+        try {
+            board.occupy(0, 0, true);
+            Assert.fail("Occupied cell must not be claimable.");
+        } catch (ModelAccessException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies k-in-a-row detection on a Gomoku-sized board, with a diagonal that spans several bitset words.
+     */
+    @Test
+    public void testGomokuDiagonal() throws ModelAccessException {
+        Board board = new Board(19, 19, 5);
+        Assert.assertEquals(19, board.getCells().length);
+        Assert.assertFalse(board.isFree(19, 0));
+
+        // Four of five cells, plus a stray cell of the other player.
+        for (int i = 10; i < 15; i++)
+            if (i != 12)
+                board.occupy(i, 18 - i, true);
+        board.occupy(15, 3, false);
+        Assert.assertFalse(board.isThreeInALine());
+
+        // Closing the gap in the middle of the run completes the line.
+        board.occupy(12, 6, true);
+        Assert.assertEquals(1, board.getThreeInALineCharIfExists());
+    }
+
+    /**
+     * Verifies rectangular boards and that claims outside the board are rejected.
+     */
+    @Test
+    public void testRectangular() throws ModelAccessException {
+        Board board = new Board(4, 2, 4);
+        Assert.assertEquals(2, board.getCells().length);
+        Assert.assertEquals(4, board.getCells()[0].length);
+        for (int x = 0; x < 3; x++)
+            board.occupy(x, 1, false);
+        Assert.assertFalse(board.isThreeInALine());
+        board.occupy(3, 1, false);
+        Assert.assertEquals(2, board.getThreeInALineCharIfExists());
+        try {
+            board.occupy(0, 2, true);
+            Assert.fail("Cell outside the board must not be claimable.");
+        } catch (ModelAccessException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies published snapshots are not affected by later moves and share unmodified rows with their successor.
+     */
+    @Test
+    public void testSnapshots() throws ModelAccessException {
+        Board board = new Board();
+        BoardSnapshot before = board.getSnapshot();
+        board.occupy(1, 2, true);
+        BoardSnapshot after = board.getSnapshot();
+
+        Assert.assertTrue(before.isEmpty());
+        Assert.assertTrue(before.isFree(1, 2));
+        Assert.assertFalse(after.isFree(1, 2));
+        Assert.assertEquals(1, after.getVersion());
+        Assert.assertSame("Unmodified rows should be shared", before.getCells()[0], after.getCells()[0]);
+        Assert.assertSame("Reads should not copy", after.getCells(), after.getCells());
+        Assert.assertEquals(board.toString(), after.toString());
+    }
+}
@@ -0,0 +1,76 @@
+package org.tpiggo.xoxinternals;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for the flight recorder events of the Xox manager.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class FlightRecorderEventsTest extends XoxTestUtils {
+
+    private static final String[] EVENTS = {"org.tpiggo.xox.Registry", "org.tpiggo.xox.ActionGeneration",
+            "org.tpiggo.xox.Move", "org.tpiggo.xox.EndingAnalysis"};
+
+    /**
+     * Verifies a recording without thresholds captures every step of a game, tagged with the game id.
+     */
+    @Test
+    public void testGameEvents() throws IOException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        Path file = Files.createTempFile("xox", ".jfr");
+        long gameId;
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS)
+                recording.enable(event).withThreshold(Duration.ZERO);
+            recording.start();
+
+            // The first player claims the first column.
+            gameId = manager.addGame(getDefaultInitSettings(false));
+            int[] moves = {0, 0, 1, 0, 2};
+            for (int i = 0; i < moves.length; i++) {
+                String player = i % 2 == 0 ? "X" : "O";
+                manager.getActions(gameId, player);
+                manager.performAction(gameId, player, moves[i]);
+            }
+            manager.removeGame(gameId);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        String outcome = null;
+        try {
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                if (!name.startsWith("org.tpiggo.xox.") || event.getLong("gameId") != gameId)
+                    continue;
+                counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+                if (name.equals("org.tpiggo.xox.EndingAnalysis"))
+                    outcome = event.getString("outcome");
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        // Registry: one insertion, one removal, one lookup per getActions and performAction call.
+        Assert.assertEquals(Integer.valueOf(12), counts.get("org.tpiggo.xox.Registry"));
+        Assert.assertEquals(Integer.valueOf(5), counts.get("org.tpiggo.xox.ActionGeneration"));
+        Assert.assertEquals(Integer.valueOf(5), counts.get("org.tpiggo.xox.Move"));
+        Assert.assertEquals(Integer.valueOf(1), counts.get("org.tpiggo.xox.EndingAnalysis"));
+        Assert.assertEquals("WON_BY_FIRST", outcome);
+    }
+}
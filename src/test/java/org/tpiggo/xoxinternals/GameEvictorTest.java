@@ -0,0 +1,122 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.XoxGame;
+import org.tpiggo.xoxinternals.service.GameArchive;
+import org.tpiggo.xoxinternals.service.GameEvictor;
+import org.tpiggo.xoxinternals.service.ShardedXoxManager;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unit tests for the incremental eviction of finished games.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class GameEvictorTest extends XoxTestUtils {
+
+    /**
+     * Verifies a finished game is evicted and archived once its TTL elapsed, while running games stay resident.
+     */
+    @Test
+    public void testFinishedTtl() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        long finished = manager.addGame(getDefaultInitSettings(false));
+        long running = manager.addGame(getDefaultInitSettings(false));
+
+        // X claims the left column.
+        manager.performAction(finished, "X", 0);
+        manager.performAction(finished, "O", 0);
+        manager.performAction(finished, "X", 1);
+        manager.performAction(finished, "O", 0);
+        manager.performAction(finished, "X", 2);
+        manager.performAction(running, "X", 0);
+
+        final Set<Long> archived = new HashSet<>();
+        GameEvictor evictor = new GameEvictor(manager, 1, 0, 0, 1 << 16, 100);
+        evictor.setArchive(new GameArchive() {
+            @Override
+            public void archive(long gameId, XoxGame game) {
+                Assert.assertTrue(game.isFinished());
+                archived.add(gameId);
+            }
+        });
+
+        // The first pass notices the game finished, the TTL counts from there.
+        for (int pass = 0; pass < 3 && manager.getBoard(finished) != null; pass++) {
+            for (int step = 0; step < 4096; step++)
+                evictor.sweep();
+            Thread.sleep(5);
+        }
+        Assert.assertNull(manager.getBoard(finished));
+        Assert.assertTrue(archived.contains(finished));
+        Assert.assertNotNull(manager.getBoard(running));
+        Assert.assertTrue(evictor.getExpiredFinishedCount() >= 1);
+        Assert.assertEquals(0, evictor.getEvictedOverCapacityCount());
+    }
+
+    /**
+     * Verifies games are archived and removed by the shard owning them in sharded execution mode.
+     */
+    @Test
+    public void testShardedEviction() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        ShardedXoxManager shardedManager = new ShardedXoxManager(manager, 2);
+        try {
+            long finished = shardedManager.addGame(getDefaultInitSettings(false));
+            int[] moves = {0, 0, 1, 0, 2};
+            for (int i = 0; i < moves.length; i++)
+                shardedManager.performAction(finished, i % 2 == 0 ? "X" : "O", moves[i]);
+
+            final Set<String> archivingThreads = ConcurrentHashMap.newKeySet();
+            GameEvictor evictor = new GameEvictor(manager, 1, 0, 0, 1 << 16, 100);
+            evictor.setArchive(new GameArchive() {
+                @Override
+                public void archive(long gameId, XoxGame game) {
+                    archivingThreads.add(Thread.currentThread().getName());
+                }
+            });
+
+            // The first pass notices the game finished, the TTL counts from there.
+            for (int pass = 0; pass < 500 && manager.getBoard(finished) != null; pass++) {
+                for (int step = 0; step < 4096; step++)
+                    evictor.sweep();
+                Thread.sleep(5);
+            }
+            Assert.assertNull(manager.getBoard(finished));
+            Assert.assertTrue(evictor.getExpiredFinishedCount() >= 1);
+            Assert.assertFalse(archivingThreads.isEmpty());
+            for (String thread : archivingThreads)
+                Assert.assertTrue(thread, thread.startsWith("xox-shard-"));
+        } finally {
+            shardedManager.shutdown();
+        }
+    }
+
+    /**
+     * Verifies a game the archive fails to store stays resident.
+     */
+    @Test
+    public void testFailingArchive() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        long idle = manager.addGame(getDefaultInitSettings(false));
+        Thread.sleep(5);
+
+        GameEvictor evictor = new GameEvictor(manager, 0, 1, 0, 1 << 16, 100);
+        evictor.setArchive(new GameArchive() {
+            @Override
+            public void archive(long gameId, XoxGame game) {
+                throw new RuntimeException("Archive unavailable.");
+            }
+        });
+        for (int step = 0; step < 4096; step++)
+            evictor.sweep();
+        Assert.assertNotNull(manager.getBoard(idle));
+        Assert.assertEquals(0, evictor.getExpiredIdleCount());
+        manager.removeGame(idle);
+    }
+}
@@ -0,0 +1,70 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.GameHistory;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unit tests for the recorded move history of games and its binary encoding.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class GameHistoryTest extends XoxTestUtils {
+
+    private final Player x = new Player("X", "#FF0000");
+    private final Player o = new Player("O", "#00FF00");
+
+    /**
+     * Verifies the history of a classic game lists the moves in order and rebuilds intermediate positions.
+     */
+    @Test
+    public void testPackedHistory() {
+        XoxGame game = new XoxGame(x, o);
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(1, 1, 0));
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(0, 0, 1));
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(2, 0, 0));
+
+        GameHistory history = game.getHistory();
+        Assert.assertArrayEquals(new int[]{4, 0, 2}, history.getMoves());
+        Assert.assertEquals(1, history.getPlayerIndex(1));
+        Assert.assertEquals(1, history.getCurrentPlayerIndex());
+        Assert.assertFalse(history.isFinished());
+
+        BoardReadOnly position = history.getPosition(1);
+        Assert.assertFalse(position.isFree(1, 1));
+        Assert.assertTrue(position.isFree(0, 0));
+        Assert.assertTrue(history.getPosition(0).isEmpty());
+    }
+
+    /**
+     * Verifies a history survives encoding and a game restored from it continues where the original stopped.
+     */
+    @Test
+    public void testEncodingAndRestore() {
+        XoxGame game = new XoxGame(x, o, 15, 15, 5);
+        for (int i = 0; i < 6; i++)
+            Assert.assertEquals(MoveStatus.APPLIED, game.claim(i, i % 2, i % 2));
+
+        GameHistory history = game.getHistory();
+        ByteBuffer buffer = ByteBuffer.allocate(history.getEncodedSize());
+        history.writeTo(buffer);
+        Assert.assertEquals(0, buffer.remaining());
+        buffer.flip();
+        GameHistory decoded = GameHistory.readFrom(buffer);
+        Assert.assertArrayEquals(history.getMoves(), decoded.getMoves());
+        Assert.assertEquals(15, decoded.getWidth());
+        Assert.assertEquals(5, decoded.getLineLength());
+
+        XoxGame restored = XoxGame.restore(x, o, decoded);
+        Assert.assertFalse(restored.getBoard().isFree(5, 1));
+        Assert.assertEquals(MoveStatus.NOT_YOUR_TURN, restored.claim(7, 7, 1));
+        Assert.assertEquals(MoveStatus.APPLIED, restored.claim(7, 7, 0));
+        Assert.assertEquals(7, restored.getHistory().getMoveCount());
+    }
+}
@@ -0,0 +1,99 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.service.GameRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the concurrent, long keyed game registry.
+ */
+public class GameRegistryTest {
+
+    /**
+     * Verifies basic put, get and remove semantics, including growth beyond the initial capacity and removals in the
+     * middle of probe sequences.
+     */
+    @Test
+    public void testPutGetRemove() {
+        GameRegistry<String> registry = new GameRegistry<>(1);
+        for (long id = 0; id < 1000; id++)
+            Assert.assertNull(registry.putIfAbsent(id, "game" + id));
+        Assert.assertEquals(1000, registry.size());
+        Assert.assertEquals("game7", registry.putIfAbsent(7, "other"));
+        Assert.assertEquals("game7", registry.get(7));
+
+        // Remove every third game, all others must remain reachable.
+        for (long id = 0; id < 1000; id += 3)
+            Assert.assertEquals("game" + id, registry.remove(id));
+        for (long id = 0; id < 1000; id++)
+            Assert.assertEquals(id % 3 == 0 ? null : "game" + id, registry.get(id));
+        Assert.assertEquals(666, registry.ids().size());
+        Assert.assertNull(registry.remove(3));
+    }
+
+    /**
+     * Verifies concurrent writers on distinct ids and concurrent readers do not lose or corrupt entries.
+     */
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final GameRegistry<Long> registry = new GameRegistry<>(4);
+        final AtomicInteger inconsistencies = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final long offset = t * 100_000L;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (long id = offset; id < offset + 20_000; id++) {
+                        registry.put(id, id);
+                        Long value = registry.get(id);
+                        if (value == null || value != id)
+                            inconsistencies.incrementAndGet();
+                        if (id % 2 == 0)
+                            registry.remove(id);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assert.assertEquals(0, inconsistencies.get());
+        Assert.assertEquals(threads.length * 10_000, registry.size());
+        Assert.assertEquals(Long.valueOf(100_001), registry.get(100_001));
+        Assert.assertNull(registry.get(100_000));
+    }
+
+    /**
+     * Verifies an incremental scan visits every entry exactly once per pass, however small the window.
+     */
+    @Test
+    public void testScan() {
+        GameRegistry<String> registry = new GameRegistry<>(4);
+        for (long id = 0; id < 500; id++)
+            registry.put(id, "game" + id);
+
+        final boolean[] visited = new boolean[500];
+        final AtomicInteger visits = new AtomicInteger();
+        long cursor = 0;
+        do {
+            cursor = registry.scan(cursor, 7, new GameRegistry.Visitor<String>() {
+                @Override
+                public void visit(long id, String value) {
+                    visited[(int) id] = true;
+                    visits.incrementAndGet();
+                }
+            });
+        } while (cursor != 0);
+        Assert.assertEquals(500, visits.get());
+        for (boolean entry : visited)
+            Assert.assertTrue(entry);
+
+        Assert.assertFalse(registry.remove(3, "other"));
+        Assert.assertTrue(registry.remove(3, registry.get(3)));
+        Assert.assertNull(registry.get(3));
+    }
+}
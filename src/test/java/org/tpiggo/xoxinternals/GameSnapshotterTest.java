@@ -0,0 +1,78 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.BoardReadOnly;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+import org.tpiggo.xoxinternals.service.GameSnapshotter;
+import org.tpiggo.xoxinternals.service.MoveLog;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Unit tests for snapshots and their combination with the move log.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class GameSnapshotterTest extends XoxTestUtils {
+
+    /**
+     * Verifies a restart restores games from the snapshot plus the log tail written after it, and that a snapshot
+     * deletes the log segments it covers.
+     */
+    @Test
+    public void testSnapshotAndTail() throws IOException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        Path directory = Files.createTempDirectory("xox-snapshot");
+
+        MoveLog log = new MoveLog(manager, directory.toString(), 1 << 20, 1 << 18, true);
+        log.open();
+        GameSnapshotter snapshotter = new GameSnapshotter(manager, directory.toString(), 60000);
+        snapshotter.setMoveLog(log);
+
+        long classic = manager.addGame(getDefaultInitSettings(false));
+        XoxInitSettings gomoku = getDefaultInitSettings(true);
+        gomoku.setWidth(15);
+        gomoku.setHeight(15);
+        gomoku.setLineLength(5);
+        long large = manager.addGame(gomoku);
+        manager.performAction(classic, "X", 4);
+        manager.performAction(large, "O", 100);
+
+        Assert.assertTrue(snapshotter.snapshot() >= 2);
+        String[] files = directory.toFile().list();
+        Arrays.sort(files);
+        Assert.assertEquals("Covered segments must be deleted", 2, files.length);
+
+        // Tail after the snapshot.
+        manager.performAction(classic, "O", 0);
+        manager.performAction(large, "X", 0);
+        log.close();
+
+        int[][] classicCells = manager.getBoard(classic).getCells();
+        int[][] largeCells = manager.getBoard(large).getCells();
+        manager.removeGame(classic);
+        manager.removeGame(large);
+
+        MoveLog restored = new MoveLog(manager, directory.toString(), 1 << 20, 1 << 18, true);
+        restored.open();
+        try {
+            Assert.assertEquals("Only the tail is replayed", 2, restored.getReplayedEventCount());
+            BoardReadOnly classicBoard = manager.getBoard(classic);
+            Assert.assertArrayEquals(classicCells, classicBoard.getCells());
+            Assert.assertArrayEquals(largeCells, manager.getBoard(large).getCells());
+            Assert.assertEquals(15, manager.getBoard(large).getWidth());
+            Assert.assertEquals("O", manager.getPlayers(large)[0].getName());
+            Assert.assertEquals(7, manager.getActions(classic, "X").length);
+        } finally {
+            restored.close();
+            for (File file : directory.toFile().listFiles())
+                Files.delete(file.toPath());
+        }
+    }
+}
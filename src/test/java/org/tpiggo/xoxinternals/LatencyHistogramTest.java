@@ -0,0 +1,53 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.service.LatencyHistogram;
+
+/**
+ * Unit tests for the latency histogram.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Verifies percentiles of a uniform distribution are reported within the histogram precision.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100000; value++)
+            histogram.record(value * 1000);
+
+        Assert.assertEquals(100000, histogram.getCount());
+        Assert.assertEquals(100000000, histogram.getMax());
+        Assert.assertEquals(50000500, histogram.getMean(), 1);
+        assertWithinPrecision(50000000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(99000000, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(99900000, histogram.getValueAtPercentile(99.9));
+        Assert.assertEquals(100000000, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Verifies small values are exact, and empty histograms and out of range values are handled.
+     */
+    @Test
+    public void testEdgeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(0, histogram.getValueAtPercentile(0));
+        Assert.assertEquals(7, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getMax());
+        Assert.assertTrue(histogram.getValueAtPercentile(100) > 1L << 40);
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        Assert.assertTrue("expected about " + expected + " got " + actual,
+                actual >= expected && actual <= expected + expected / 32);
+    }
+}
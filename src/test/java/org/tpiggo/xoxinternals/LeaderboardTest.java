@@ -0,0 +1,82 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.service.Leaderboard;
+import org.tpiggo.xoxinternals.service.PlayerStanding;
+import org.tpiggo.xoxinternals.service.Ranking;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.util.List;
+
+/**
+ * Unit tests for the global player leaderboard.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class LeaderboardTest extends XoxTestUtils {
+
+    /**
+     * Verifies results are counted, ratings move by the Elo rule and ranks follow the ratings.
+     */
+    @Test
+    public void testRecord() {
+        Leaderboard leaderboard = new Leaderboard(XoxManagerImpl.getInstance(), 32);
+        leaderboard.record(result("Alice", "Bob", false));
+        leaderboard.record(result("Alice", "Carol", false));
+        leaderboard.record(result("Bob", "Carol", true));
+
+        // Running games are not counted
+        leaderboard.record(new Ranking(new Player[]{new Player("Bob", ""), new Player("Dave", "")},
+                new int[]{0, 0}, false));
+        Assert.assertEquals(3, leaderboard.size());
+
+        PlayerStanding alice = leaderboard.getStanding("Alice");
+        Assert.assertEquals(2, alice.getWins());
+        Assert.assertEquals(1, alice.getRank());
+        Assert.assertEquals(1531, alice.getRating());
+
+        PlayerStanding bob = leaderboard.getStanding("Bob");
+        Assert.assertEquals(1, bob.getLosses());
+        Assert.assertEquals(1, bob.getDraws());
+        Assert.assertNull(leaderboard.getStanding("Dave"));
+
+        List<PlayerStanding> top = leaderboard.getTop(2);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("Alice", top.get(0).getName());
+        Assert.assertEquals(leaderboard.getStanding(top.get(1).getName()).getRank(), top.get(1).getRank());
+    }
+
+    /**
+     * Verifies games finished through the manager reach the leaderboard exactly once.
+     */
+    @Test
+    public void testGameEnd() {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        Leaderboard leaderboard = new Leaderboard(manager, 32);
+        leaderboard.start();
+        try {
+            long gameId = manager.addGame(getDefaultInitSettings(false));
+
+            // X claims the top row, offered actions are the free cells in cell order.
+            manager.performAction(gameId, "X", 0);
+            manager.performAction(gameId, "O", 2);
+            manager.performAction(gameId, "X", 0);
+            manager.performAction(gameId, "O", 2);
+            manager.performAction(gameId, "X", 0);
+            manager.performAction(gameId, "O", 0);
+
+            Assert.assertEquals(1, leaderboard.getStanding("X").getWins());
+            Assert.assertEquals(1, leaderboard.getStanding("O").getLosses());
+            Assert.assertEquals(2, leaderboard.getStanding("O").getRank());
+        } finally {
+            leaderboard.shutdown();
+        }
+    }
+
+    private static Ranking result(String first, String second, boolean draw) {
+        return new Ranking(new Player[]{new Player(first, ""), new Player(second, "")},
+                draw ? new int[]{0, 0} : new int[]{1, 0}, true);
+    }
+}
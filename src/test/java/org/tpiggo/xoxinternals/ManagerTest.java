@@ -1,5 +1,6 @@
 package org.tpiggo.xoxinternals;
 
+import org.tpiggo.xoxinternals.service.Ranking;
 import org.tpiggo.xoxinternals.service.XoxClaimFieldAction;
 import org.tpiggo.xoxinternals.service.XoxManagerImpl;
 import org.tpiggo.xoxinternals.model.Board;
@@ -133,4 +134,31 @@ public class ManagerTest extends XoxTestUtils {
         Assert.assertNull("Game was removed but the associated board object is not null", board);
         Assert.assertFalse("Game was removed but ID is still listed by manager", XoxManagerImpl.getInstance().getGames().contains(gameId));
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies rankings are shared while a game runs, and replaced once by the final ranking when it ends.
+     */
+    @Test
+    public void testRankingMemoized() {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        long gameId = manager.addGame(getDefaultInitSettings(false));
+
+        Ranking running = manager.getRanking(gameId);
+        Assert.assertFalse(running.isGameOver());
+        Assert.assertSame(running, manager.getRanking(gameId));
+
+        // X claims the top row: cells 0, 1, 2 with O answering on the middle row. Offered actions are the free cells
+        // in cell order, so the indexes shift as cells are taken.
+        manager.performAction(gameId, "X", 0);
+        manager.performAction(gameId, "O", 2);
+        manager.performAction(gameId, "X", 0);
+        manager.performAction(gameId, "O", 2);
+        manager.performAction(gameId, "X", 0);
+
+        Ranking result = manager.getRanking(gameId);
+        Assert.assertTrue(result.isGameOver());
+        Assert.assertEquals("X", result.getPlayersDescending()[0].getName());
+        Assert.assertEquals(1, result.getScoresDescending()[0]);
+        Assert.assertSame(result, manager.getRanking(gameId));
+    }
+}
@@ -0,0 +1,99 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+import org.tpiggo.xoxinternals.service.MctsEngine;
+import org.tpiggo.xoxinternals.service.ShardedXoxManager;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+/**
+ * Unit tests for the parallel Monte Carlo tree search bot.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class MctsEngineTest extends XoxTestUtils {
+
+    /**
+     * Verifies the search finds an immediate win and completes exactly its playout budget.
+     */
+    @Test
+    public void testSearch() {
+        MctsEngine engine = new MctsEngine(XoxManagerImpl.getInstance(), 0, 20000, 2, 1.4);
+        try {
+            XoxGame game = new XoxGame(new Player("X", ""), new Player("O", ""), 7, 7, 4);
+            int[] moves = {24, 0, 25, 6, 26, 48};
+            for (int ply = 0; ply < moves.length; ply++)
+                Assert.assertEquals(MoveStatus.APPLIED, game.claimCell(moves[ply], ply % 2));
+
+            int cell = engine.chooseCell(game);
+            Assert.assertTrue("Expected a winning cell, got " + cell, cell == 23 || cell == 27);
+            Assert.assertEquals(20000, engine.getPlayoutCount());
+            Assert.assertEquals(1, engine.getSearchCount());
+            Assert.assertTrue(engine.getPlayoutsPerSecond() > 0);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Verifies the engine answers human moves once registered with the manager.
+     */
+    @Test
+    public void testBot() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        MctsEngine engine = new MctsEngine(manager, 0, 2000, 2, 1.4);
+        engine.start();
+        try {
+            long gameId = manager.addGame(getBotGameSettings());
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 14));
+            awaitMoves(manager, gameId, 2);
+            Assert.assertEquals(2000, engine.getPlayoutCount());
+            manager.removeGame(gameId);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Verifies the engine answers human moves in sharded execution mode, where the chosen move is applied by the shard
+     * owning the game.
+     */
+    @Test
+    public void testShardedBot() throws InterruptedException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        ShardedXoxManager shardedManager = new ShardedXoxManager(manager, 2);
+        MctsEngine engine = new MctsEngine(manager, 0, 2000, 2, 1.4);
+        engine.start();
+        try {
+            long gameId = shardedManager.addGame(getBotGameSettings());
+            Assert.assertEquals(MoveStatus.APPLIED, shardedManager.performAction(gameId, "X", 14));
+            awaitMoves(manager, gameId, 2);
+            shardedManager.removeGame(gameId);
+        } finally {
+            engine.shutdown();
+            shardedManager.shutdown();
+        }
+    }
+
+    private XoxInitSettings getBotGameSettings() {
+        XoxInitSettings settings = getDefaultInitSettings(false);
+        settings.setWidth(6);
+        settings.setHeight(6);
+        settings.setLineLength(4);
+        settings.getBots().add("O");
+        return settings;
+    }
+
+    /**
+     * Waits until a game holds a number of moves. Bot moves are applied asynchronously.
+     */
+    private static void awaitMoves(XoxManagerImpl manager, long gameId, int moves) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && manager.getHistory(gameId).getMoveCount() < moves; attempt++)
+            Thread.sleep(10);
+        Assert.assertEquals(moves, manager.getHistory(gameId).getMoveCount());
+    }
+}
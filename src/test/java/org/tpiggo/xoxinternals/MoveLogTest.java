@@ -0,0 +1,142 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.XoxGame;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+import org.tpiggo.xoxinternals.service.BotStrategy;
+import org.tpiggo.xoxinternals.service.MoveLog;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Unit tests for the write-ahead move log and its replay.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class MoveLogTest extends XoxTestUtils {
+
+    /**
+     * Verifies games created and played while the log is open are restored by a replay, and removed games are not.
+     * A torn frame at the end of the log must be ignored.
+     */
+    @Test
+    public void testReplay() throws IOException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        Path directory = Files.createTempDirectory("xox-log");
+
+        MoveLog log = new MoveLog(manager, directory.toString(), 1 << 20, 1 << 18, true);
+        log.open();
+        long played = manager.addGame(getDefaultInitSettings(false));
+        long removed = manager.addGame(getDefaultInitSettings(true));
+        manager.performAction(played, "X", 4);
+        manager.performAction(played, "O", 0);
+        manager.removeGame(removed);
+        log.close();
+        Assert.assertEquals(5, log.getAppendedEventCount());
+
+        // Simulate a crash in the middle of a frame.
+        File[] segments = directory.toFile().listFiles();
+        Assert.assertEquals(1, segments.length);
+        Files.write(segments[0].toPath(), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        // Forget the games, then restore them from the log.
+        manager.removeGame(played);
+        MoveLog restored = new MoveLog(manager, directory.toString(), 1 << 20, 1 << 18, true);
+        restored.open();
+        try {
+            Assert.assertEquals(5, restored.getReplayedEventCount());
+            Assert.assertNull(manager.getBoard(removed));
+            int[][] cells = manager.getBoard(played).getCells();
+            Assert.assertEquals(2, cells[0][0]);
+            Assert.assertEquals(1, cells[1][1]);
+            Assert.assertEquals("X", manager.getPlayers(played)[0].getName());
+            Assert.assertEquals(7, manager.getActions(played, "X").length);
+        } finally {
+            restored.close();
+        }
+    }
+
+    /**
+     * Verifies a bot on turn in a replayed game moves once the log is open. The reply of a bot is logged after the
+     * preceding move, so the log may end before it, here because the bot strategy never answered.
+     */
+    @Test
+    public void testResumeBotTurn() throws IOException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        Path directory = Files.createTempDirectory("xox-log");
+        XoxInitSettings settings = getDefaultInitSettings(false);
+        settings.setWidth(4);
+        settings.setHeight(4);
+        settings.getBots().add("O");
+
+        MoveLog log = new MoveLog(manager, directory.toString(), 1 << 20, 1 << 18, true);
+        log.open();
+        long gameId;
+        manager.setBoardBotStrategy(new BotStrategy() {
+            @Override
+            public void requestCell(XoxGame game, CellCallback callback) {
+                // Dropped, like a search rejected on shutdown.
+            }
+        });
+        try {
+            gameId = manager.addGame(settings);
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 5));
+            Assert.assertEquals(1, manager.getHistory(gameId).getMoveCount());
+        } finally {
+            manager.setBoardBotStrategy(null);
+            log.close();
+        }
+
+        // Forget the game, then restore it from the log. The built in heuristic answers.
+        manager.removeGame(gameId);
+        MoveLog restored = new MoveLog(manager, directory.toString(), 1 << 20, 1 << 18, true);
+        restored.open();
+        try {
+            Assert.assertEquals(2, manager.getHistory(gameId).getMoveCount());
+            Assert.assertEquals(0, manager.getHistory(gameId).getCurrentPlayerIndex());
+            manager.removeGame(gameId);
+        } finally {
+            restored.close();
+        }
+    }
+
+    /**
+     * Verifies a failing log turns unavailable without failing applied moves, and further moves are rejected until
+     * the log is closed.
+     */
+    @Test
+    public void testFailure() throws IOException {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        Path directory = Files.createTempDirectory("xox-log");
+        long gameId = manager.addGame(getDefaultInitSettings(false));
+
+        MoveLog log = new MoveLog(manager, directory.toString(), 1 << 20, 1 << 18, false);
+        log.open();
+        try {
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 4));
+
+            // Starting a segment in a vanished directory fails the writer.
+            for (File file : directory.toFile().listFiles())
+                Files.delete(file.toPath());
+            Files.delete(directory);
+            try {
+                log.startNewSegment();
+                Assert.fail("Segment change in a vanished directory not reported.");
+            } catch (RuntimeException e) {
+                Assert.assertFalse(log.isAvailable());
+            }
+            Assert.assertEquals(MoveStatus.UNAVAILABLE, manager.performAction(gameId, "O", 0));
+        } finally {
+            log.close();
+        }
+        Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "O", 0));
+        manager.removeGame(gameId);
+    }
+}
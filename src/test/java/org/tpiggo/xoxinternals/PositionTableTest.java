@@ -0,0 +1,62 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.PositionTable;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+/**
+ * Unit tests for the precomputed table of classic 3x3 positions.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class PositionTableTest extends XoxTestUtils {
+
+    /**
+     * Verifies the shipped table holds exactly the reachable positions, and the values of a few known positions.
+     */
+    @Test
+    public void testEntries() {
+        PositionTable table = PositionTable.getInstance();
+        int reachable = 0;
+        for (int first = 0; first < 512; first++)
+            for (int second = 0; second < 512; second++)
+                if (PositionTable.getOutcome(table.lookup(first, second)) != PositionTable.OUTCOME_UNREACHABLE)
+                    reachable++;
+        Assert.assertEquals(5478, reachable);
+
+        int empty = table.lookup(0, 0);
+        Assert.assertEquals(PositionTable.OUTCOME_DRAW, PositionTable.getOutcome(empty));
+        Assert.assertEquals(511, PositionTable.getBestMoves(empty));
+        Assert.assertEquals(9, PositionTable.getPliesToEnd(empty));
+
+        // First player owns cells 0 and 1, second player 3 and 4: the first player wins at once on cell 2.
+        int win = table.lookup(0b000_000_011, 0b000_011_000);
+        Assert.assertEquals(PositionTable.OUTCOME_WIN, PositionTable.getOutcome(win));
+        Assert.assertEquals(0b000_000_100, PositionTable.getBestMoves(win));
+        Assert.assertEquals(1, PositionTable.getPliesToEnd(win));
+
+        // A finished game has no moves left.
+        int lost = table.lookup(0b000_000_111, 0b000_011_000);
+        Assert.assertEquals(PositionTable.OUTCOME_LOSS, PositionTable.getOutcome(lost));
+        Assert.assertEquals(0, PositionTable.getBestMoves(lost));
+
+        // Overlapping cells are no position at all.
+        Assert.assertEquals(0, table.lookup(1, 1));
+    }
+
+    /**
+     * Verifies hints served by the manager match the table.
+     */
+    @Test
+    public void testHints() {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        long gameId = manager.addGame(getDefaultInitSettings(false));
+        Assert.assertEquals(9, manager.getHints(gameId).length);
+
+        // X takes a corner, O must answer in the center to hold the draw.
+        manager.performAction(gameId, "X", 0);
+        Assert.assertArrayEquals(new int[]{4}, manager.getHints(gameId));
+        Assert.assertNull(manager.getHints(-1));
+    }
+}
@@ -0,0 +1,45 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.service.SelfPlaySimulation;
+import org.tpiggo.xoxinternals.service.SimulationResult;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+/**
+ * Unit tests for the self-play simulation harness.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class SelfPlaySimulationTest extends XoxTestUtils {
+
+    /**
+     * Verifies random games are all played to the end, counted and removed again.
+     */
+    @Test
+    public void testRandomGames() throws InterruptedException {
+        int gamesBefore = XoxManagerImpl.getInstance().getGames().size();
+        SelfPlaySimulation simulation = new SelfPlaySimulation(XoxManagerImpl.getInstance(), 2);
+        SimulationResult result = simulation.run(500, SelfPlaySimulation.Strategy.RANDOM,
+                SelfPlaySimulation.Strategy.RANDOM, 3, 3, 3);
+
+        Assert.assertEquals(500, result.getGames());
+        Assert.assertEquals(500, result.getFirstPlayerWins() + result.getSecondPlayerWins() + result.getDraws());
+        Assert.assertTrue(result.getMoves() >= 500 * 5 && result.getMoves() <= 500 * 9);
+        Assert.assertTrue(result.getFirstPlayerWins() > 0);
+        Assert.assertEquals(gamesBefore, XoxManagerImpl.getInstance().getGames().size());
+    }
+
+    /**
+     * Verifies perfect play by both sides always ends in a draw.
+     */
+    @Test
+    public void testSolverGames() throws InterruptedException {
+        SelfPlaySimulation simulation = new SelfPlaySimulation(XoxManagerImpl.getInstance(), 2);
+        SimulationResult result = simulation.run(200, SelfPlaySimulation.Strategy.SOLVER,
+                SelfPlaySimulation.Strategy.SOLVER, 3, 3, 3);
+
+        Assert.assertEquals(200, result.getDraws());
+        Assert.assertEquals(200 * 9, result.getMoves());
+    }
+}
@@ -0,0 +1,60 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.service.ShardedXoxManager;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+/**
+ * Unit tests for the sharded, single-writer execution mode.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class ShardedXoxManagerTest extends XoxTestUtils {
+
+    /**
+     * Verifies games created, played and removed through shards are visible to readers of the underlying manager.
+     */
+    @Test
+    public void testLifecycle() {
+        ShardedXoxManager manager = new ShardedXoxManager(XoxManagerImpl.getInstance(), 3);
+        try {
+            Assert.assertEquals(3, manager.getShardCount());
+            long gameId = manager.addGame(getDefaultInitSettings(false));
+            Assert.assertTrue(XoxManagerImpl.getInstance().getGames().contains(gameId));
+
+            manager.performAction(gameId, "X", 4);
+            Assert.assertFalse(manager.getBoard(gameId).isFree(1, 1));
+            Assert.assertEquals(8, manager.getActions(gameId, "O").length);
+
+            manager.removeGame(gameId);
+            Assert.assertNull(XoxManagerImpl.getInstance().getBoard(gameId));
+            Assert.assertEquals(3, manager.getQueueDepths().length);
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    /**
+     * Verifies a batch spanning several games and shards is applied in submission order per game.
+     */
+    @Test
+    public void testBatch() {
+        ShardedXoxManager manager = new ShardedXoxManager(XoxManagerImpl.getInstance(), 4);
+        try {
+            long first = manager.addGame(getDefaultInitSettings(false));
+            long second = manager.addGame(getDefaultInitSettings(false));
+            int[] statuses = manager.performActions(
+                    new long[]{first, second, first, second, -1, first},
+                    new String[]{"X", "X", "O", "X", "X", "Observer"},
+                    new int[]{0, 8, 0, 0, 0, 0});
+            Assert.assertArrayEquals(new int[]{MoveStatus.APPLIED, MoveStatus.APPLIED, MoveStatus.APPLIED,
+                    MoveStatus.NOT_YOUR_TURN, MoveStatus.GAME_NOT_FOUND, MoveStatus.NOT_A_PARTICIPANT}, statuses);
+            Assert.assertFalse(manager.getBoard(first).isFree(1, 0));
+            Assert.assertFalse(manager.getBoard(second).isFree(2, 2));
+        } finally {
+            manager.shutdown();
+        }
+    }
+}
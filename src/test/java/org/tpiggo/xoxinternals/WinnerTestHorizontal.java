@@ -37,7 +37,7 @@ public class WinnerTestHorizontal extends XoxTestUtils {
         XoxClaimFieldAction action1 = findActionForPosition(xActions, 0, 0);
 
         // Apply first action
-        XoxActionInterpreter actionInterpreter = new XoxActionInterpreter(actionGenerator, endingAnalyzer);
+        XoxActionInterpreter actionInterpreter = new XoxActionInterpreter(endingAnalyzer);
         actionInterpreter.interpretAndApplyAction(action1, game);
 
         // 2)
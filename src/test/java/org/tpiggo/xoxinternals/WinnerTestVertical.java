@@ -36,7 +36,7 @@ public class WinnerTestVertical extends XoxTestUtils {
         XoxClaimFieldAction action1 = findActionForPosition(xActions, 1, 0);
 
         // Apply first action
-        XoxActionInterpreter actionInterpreter = new XoxActionInterpreter(actionGenerator, endingAnalyzer);
+        XoxActionInterpreter actionInterpreter = new XoxActionInterpreter(endingAnalyzer);
         actionInterpreter.interpretAndApplyAction(action1, game);
 
         // 2)
@@ -0,0 +1,116 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.BoardSnapshot;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for atomic move application on packed and board backed games.
+ */
+public class XoxGameTest {
+
+    /**
+     * Verifies that claim enforces turn order and free cells, and flags the end of the game in the same step.
+     */
+    @Test
+    public void testClaim() {
+        XoxGame game = new XoxGame(new Player("X", "#000000"), new Player("O", "#FFFFFF"));
+        Assert.assertTrue(game.isPacked());
+        Assert.assertEquals("Second player must wait for the first", MoveStatus.NOT_YOUR_TURN, game.claim(0, 0, 1));
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(0, 0, 0));
+        Assert.assertEquals("Occupied cell must be rejected", MoveStatus.CELL_OCCUPIED, game.claim(0, 0, 1));
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(0, 1, 1));
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(1, 0, 0));
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(1, 1, 1));
+        Assert.assertFalse(game.isFinished());
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(2, 0, 0));
+
+        BoardSnapshot board = game.getBoard();
+        Assert.assertTrue(game.isFinished());
+        Assert.assertEquals(1, board.getThreeInALineCharIfExists());
+        Assert.assertEquals(5, board.getVersion());
+        Assert.assertEquals(2, board.getCells()[1][0]);
+        Assert.assertEquals("Finished game must reject moves", MoveStatus.GAME_OVER, game.claim(2, 2, 1));
+    }
+
+    /**
+     * Verifies that board backed games apply the same rules.
+     */
+    @Test
+    public void testClaimOnBoard() {
+        XoxGame game = new XoxGame(new Player("X", "#000000"), new Player("O", "#FFFFFF"), 4, 4, 3);
+        Assert.assertFalse(game.isPacked());
+        Assert.assertEquals(MoveStatus.APPLIED, game.claim(3, 3, 0));
+        Assert.assertEquals(MoveStatus.CELL_OCCUPIED, game.claim(3, 3, 1));
+        Assert.assertEquals(MoveStatus.INVALID_ACTION, game.claim(4, 0, 1));
+        Assert.assertEquals(1, game.getCurrentPlayerIndex());
+        Assert.assertEquals(1, game.getBoard().getCells()[3][3]);
+    }
+
+    /**
+     * Verifies that concurrent submissions of the same move are applied exactly once.
+     */
+    @Test
+    public void testConcurrentClaims() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            final XoxGame game = new XoxGame(new Player("X", "#000000"), new Player("O", "#FFFFFF"));
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger applied = new AtomicInteger();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final int cell = t % 2;
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        if (game.claim(cell, 0, 0) == MoveStatus.APPLIED)
+                            applied.incrementAndGet();
+                    }
+                });
+                threads[t].start();
+            }
+            start.countDown();
+            for (Thread thread : threads)
+                thread.join();
+
+            Assert.assertEquals(1, applied.get());
+            Assert.assertEquals(1, game.getBoard().getVersion());
+            Assert.assertEquals(1, game.getCurrentPlayerIndex());
+        }
+    }
+
+    /**
+     * Verifies games that reach the same position through different move orders share the interned board view, and
+     * keep their own move histories.
+     */
+    @Test
+    public void testSharedPositions() {
+        XoxGame first = new XoxGame(new Player("X", "#000000"), new Player("O", "#FFFFFF"));
+        XoxGame second = new XoxGame(new Player("A", "#000000"), new Player("B", "#FFFFFF"));
+        int[] firstOrder = {4, 0, 8, 2};
+        int[] secondOrder = {8, 2, 4, 0};
+        for (int ply = 0; ply < 4; ply++) {
+            Assert.assertEquals(MoveStatus.APPLIED, first.claimCell(firstOrder[ply], ply % 2));
+            Assert.assertEquals(MoveStatus.APPLIED, second.claimCell(secondOrder[ply], ply % 2));
+        }
+        Assert.assertSame(first.getBoard(), second.getBoard());
+        Assert.assertArrayEquals(firstOrder, first.getHistory().getMoves());
+        Assert.assertArrayEquals(secondOrder, second.getHistory().getMoves());
+
+        // Completing the top row ends the game in a terminal position.
+        Assert.assertEquals(MoveStatus.APPLIED, first.claimCell(3, 0));
+        Assert.assertEquals(MoveStatus.APPLIED, first.claimCell(1, 1));
+        Assert.assertTrue(first.isFinished());
+        Assert.assertEquals(2, first.getBoard().getThreeInALineCharIfExists());
+    }
+}
@@ -32,4 +32,24 @@ public class XoxInitSettingsTest {
         Assert.assertTrue("Players not correctly set", settings.getPlayers() == players);
     }
 
+    /**
+     * Tests invalid settings are detected before a game is built.
+     */
+    @Test
+    public void testFindError() {
+        LinkedList<Player> players = new LinkedList<>();
+        players.add(new Player("Max", "#CAFFEE"));
+        players.add(new Player("Moritz", "#1CE7EA"));
+        XoxInitSettings settings = new XoxInitSettings(players, "Max");
+        Assert.assertNull(settings.findError());
+
+        settings.setLineLength(4);
+        Assert.assertNotNull("Line length exceeding the board not detected", settings.findError());
+        settings.setLineLength(3);
+        settings.setWidth(20);
+        Assert.assertNotNull("Oversized board not detected", settings.findError());
+        settings.setWidth(3);
+        settings.setCreator("Observer");
+        Assert.assertNotNull("Foreign creator not detected", settings.findError());
+    }
 }
@@ -0,0 +1,73 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.MoveStatus;
+import org.tpiggo.xoxinternals.service.ShardedXoxManager;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+import org.tpiggo.xoxinternals.service.XoxMetrics;
+
+/**
+ * Unit tests for the metrics of the Xox manager.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class XoxMetricsTest extends XoxTestUtils {
+
+    /**
+     * Verifies game lifecycle, applied and rejected moves are counted and rendered for scraping, without side effects.
+     */
+    @Test
+    public void testCountsAndScrape() {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        XoxMetrics metrics = new XoxMetrics(manager);
+        metrics.start();
+        try {
+            long gameId = manager.addGame(getDefaultInitSettings(false));
+            Assert.assertEquals(MoveStatus.APPLIED, manager.performAction(gameId, "X", 4));
+            Assert.assertEquals(MoveStatus.NOT_YOUR_TURN, manager.performAction(gameId, "X", 0));
+            Assert.assertEquals(MoveStatus.NOT_A_PARTICIPANT, manager.performAction(gameId, "Observer", 0));
+            Assert.assertArrayEquals(new int[]{MoveStatus.GAME_NOT_FOUND},
+                    manager.performActions(new long[]{-1}, new String[]{"X"}, new int[]{0}));
+            for (int i = 0; i < 100 * XoxMetrics.ACTION_SAMPLE_RATE; i++)
+                manager.getActions(gameId, "O");
+            metrics.recordRequest("GET /board/{id}", 2000000);
+            manager.removeGame(gameId);
+
+            Assert.assertEquals(1, metrics.getGamesCreated());
+            Assert.assertEquals(1, metrics.getMovesApplied());
+            Assert.assertEquals(1, metrics.getMovesRejected(MoveStatus.NOT_YOUR_TURN));
+            Assert.assertEquals(1, metrics.getMovesRejected(MoveStatus.NOT_A_PARTICIPANT));
+            Assert.assertEquals(1, metrics.getMovesRejected(MoveStatus.GAME_NOT_FOUND));
+
+            String scrape = metrics.scrape();
+            Assert.assertTrue(scrape.contains("xox_games_created_total 1\n"));
+            Assert.assertTrue(scrape.contains("xox_games_removed_total 1\n"));
+            Assert.assertTrue(scrape.contains("xox_moves_applied_total 1\n"));
+            Assert.assertTrue(scrape.contains("xox_moves_rejected_total{reason=\"NOT_YOUR_TURN\"} 1\n"));
+            Assert.assertTrue(scrape.contains("xox_http_request_seconds_count{method=\"GET\",uri=\"/board/{id}\"} 1\n"));
+            Assert.assertFalse(scrape.contains("xox_action_generation_seconds_count 0\n"));
+            Assert.assertEquals("Scraping changed the metrics", scrape, metrics.scrape());
+        } finally {
+            metrics.shutdown();
+        }
+    }
+
+    /**
+     * Verifies the mailbox depth of every shard is rendered in sharded execution mode.
+     */
+    @Test
+    public void testShardQueueDepth() {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        ShardedXoxManager shardedManager = new ShardedXoxManager(manager, 2);
+        XoxMetrics metrics = new XoxMetrics(manager);
+        metrics.setShardedManager(shardedManager);
+        try {
+            String scrape = metrics.scrape();
+            Assert.assertTrue(scrape.contains("xox_shard_queue_depth{shard=\"0\"} 0\n"));
+            Assert.assertTrue(scrape.contains("xox_shard_queue_depth{shard=\"1\"} 0\n"));
+        } finally {
+            shardedManager.shutdown();
+        }
+    }
+}
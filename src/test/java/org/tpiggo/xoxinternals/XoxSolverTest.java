@@ -0,0 +1,88 @@
+package org.tpiggo.xoxinternals;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tpiggo.xoxinternals.model.Player;
+import org.tpiggo.xoxinternals.model.XoxGame;
+import org.tpiggo.xoxinternals.model.XoxInitSettings;
+import org.tpiggo.xoxinternals.model.XoxSolver;
+import org.tpiggo.xoxinternals.service.Ranking;
+import org.tpiggo.xoxinternals.service.XoxClaimFieldAction;
+import org.tpiggo.xoxinternals.service.XoxManagerImpl;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Unit tests for the move solver and server controlled players.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class XoxSolverTest extends XoxTestUtils {
+
+    private final Player x = new Player("X", "#FF0000");
+    private final Player o = new Player("O", "#00FF00");
+
+    /**
+     * Verifies the solver completes its own line before blocking, and blocks if it can not win.
+     */
+    @Test
+    public void testWinAndBlock() {
+        XoxGame game = play(new XoxGame(x, o), 0, 3, 1, 4);
+        Assert.assertEquals(2, XoxSolver.chooseCell(game));
+
+        game = play(new XoxGame(x, o), 4, 0, 8, 1);
+        Assert.assertEquals(2, XoxSolver.chooseCell(game));
+
+        // Larger boards: X wins on either end of its line rather than blocking O, O blocks a line it can not beat.
+        game = play(new XoxGame(x, o, 9, 9, 4), 40, 0, 41, 1, 42, 2);
+        int cell = XoxSolver.chooseCell(game);
+        Assert.assertTrue(cell == 39 || cell == 43);
+        game = play(new XoxGame(x, o, 9, 9, 4), 0, 40, 1, 50, 2);
+        Assert.assertEquals(3, XoxSolver.chooseCell(game));
+    }
+
+    /**
+     * Verifies two perfect players draw, and the solver never loses against random play.
+     */
+    @Test
+    public void testBotGames() {
+        XoxManagerImpl manager = XoxManagerImpl.getInstance();
+        long gameId = manager.addGame(botSettings("X", "O"));
+        Ranking ranking = manager.getRanking(gameId);
+        Assert.assertTrue(ranking.isGameOver());
+        Assert.assertEquals(0, ranking.getScoresDescending()[0]);
+
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            boolean botStarts = round % 2 == 0;
+            XoxInitSettings settings = getDefaultInitSettings(botStarts);
+            settings.getBots().add("O");
+            gameId = manager.addGame(settings);
+            XoxClaimFieldAction[] actions = manager.getActions(gameId, "X");
+            while (actions.length > 0) {
+                manager.performAction(gameId, "X", random.nextInt(actions.length));
+                actions = manager.getActions(gameId, "X");
+            }
+            ranking = manager.getRanking(gameId);
+            Assert.assertTrue(ranking.isGameOver());
+            Assert.assertFalse(ranking.getScoresDescending()[0] == 1
+                    && ranking.getPlayersDescending()[0].getName().equals("X"));
+            manager.removeGame(gameId);
+        }
+    }
+
+    private XoxInitSettings botSettings(String... bots) {
+        XoxInitSettings settings = getDefaultInitSettings(false);
+        settings.setBots(new LinkedList<String>());
+        for (String bot : bots)
+            settings.getBots().add(bot);
+        return settings;
+    }
+
+    private static XoxGame play(XoxGame game, int... cells) {
+        for (int ply = 0; ply < cells.length; ply++)
+            game.claimCell(cells[ply], ply % 2);
+        return game;
+    }
+}